@@ -1,3 +1,12 @@
 plugins {
   id("roundalib") version "0.7.0-SNAPSHOT"
+  id("me.champeau.jmh") version "0.7.2"
+}
+
+jmh {
+  fork.set(1)
+  warmupIterations.set(3)
+  iterations.set(5)
+  profilers.add("gc")
+  resultFormat.set("JSON")
 }
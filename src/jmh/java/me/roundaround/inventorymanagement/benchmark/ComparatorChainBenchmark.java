@@ -0,0 +1,77 @@
+package me.roundaround.inventorymanagement.benchmark;
+
+import me.roundaround.inventorymanagement.inventory.sorting.SerialComparator;
+import me.roundaround.inventorymanagement.inventory.sorting.SpecializedComparator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the generic {@link SerialComparator} loop against generated {@link SpecializedComparator} chains. Three
+ * different chains are used in every invocation so that the generic loop's call site sees several receiver types,
+ * as it does once more than one comparator chain is in use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ComparatorChainBenchmark {
+  private static final Comparator<Entry> BY_NAME = Comparator.comparing(Entry::name);
+  private static final Comparator<Entry> BY_COUNT = Comparator.comparingInt(Entry::count).reversed();
+  private static final Comparator<Entry> BY_ID = Comparator.comparingInt(Entry::id);
+
+  @Param({"27", "1024"})
+  public int size;
+
+  private Entry[] template;
+  private Entry[] entries;
+
+  private Comparator<Entry> serialA;
+  private Comparator<Entry> serialB;
+  private Comparator<Entry> serialC;
+  private Comparator<Entry> specializedA;
+  private Comparator<Entry> specializedB;
+  private Comparator<Entry> specializedC;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    Random random = new Random(size);
+    this.template = new Entry[size];
+    for (int i = 0; i < size; i++) {
+      this.template[i] = new Entry("item" + random.nextInt(16), 1 + random.nextInt(64), random.nextInt());
+    }
+
+    this.serialA = SerialComparator.comparing(BY_NAME, BY_COUNT, BY_ID);
+    this.serialB = SerialComparator.comparing(BY_COUNT, BY_NAME, BY_ID);
+    this.serialC = SerialComparator.comparing(BY_NAME, BY_ID);
+    this.specializedA = SpecializedComparator.comparing(BY_NAME, BY_COUNT, BY_ID);
+    this.specializedB = SpecializedComparator.comparing(BY_COUNT, BY_NAME, BY_ID);
+    this.specializedC = SpecializedComparator.comparing(BY_NAME, BY_ID);
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    this.entries = this.template.clone();
+  }
+
+  @Benchmark
+  public Entry[] serial() {
+    Arrays.sort(this.entries, this.serialA);
+    Arrays.sort(this.entries, this.serialB);
+    Arrays.sort(this.entries, this.serialC);
+    return this.entries;
+  }
+
+  @Benchmark
+  public Entry[] specialized() {
+    Arrays.sort(this.entries, this.specializedA);
+    Arrays.sort(this.entries, this.specializedB);
+    Arrays.sort(this.entries, this.specializedC);
+    return this.entries;
+  }
+
+  public record Entry(String name, int count, int id) {
+  }
+}
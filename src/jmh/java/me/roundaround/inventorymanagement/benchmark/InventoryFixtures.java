@@ -0,0 +1,99 @@
+package me.roundaround.inventorymanagement.benchmark;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.enchantment.Enchantments;
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+
+import java.util.Random;
+
+/**
+ * Shared setup for the benchmarks: bootstraps the game registries once and builds deterministic
+ * {@link SimpleInventory} fixtures.
+ */
+public final class InventoryFixtures {
+  private static final Item[] STACKABLES = {
+      Items.COBBLESTONE, Items.DIRT, Items.OAK_LOG, Items.IRON_INGOT, Items.REDSTONE, Items.STRING, Items.BONE,
+      Items.ARROW, Items.GLASS, Items.SAND, Items.GUNPOWDER, Items.BREAD
+  };
+  private static final Item[] GEAR = {
+      Items.DIAMOND_SWORD, Items.DIAMOND_PICKAXE, Items.NETHERITE_AXE, Items.IRON_CHESTPLATE, Items.BOW,
+      Items.ENCHANTED_BOOK
+  };
+  private static final Enchantment[] ENCHANTMENTS = {
+      Enchantments.SHARPNESS, Enchantments.UNBREAKING, Enchantments.MENDING, Enchantments.EFFICIENCY,
+      Enchantments.FORTUNE, Enchantments.PROTECTION, Enchantments.POWER
+  };
+
+  private static boolean bootstrapped = false;
+
+  private InventoryFixtures() {
+  }
+
+  public static synchronized void bootstrap() {
+    if (bootstrapped) {
+      return;
+    }
+    SharedConstants.createGameVersion();
+    Bootstrap.initialize();
+    bootstrapped = true;
+  }
+
+  public static SimpleInventory create(Contents contents, int size, long seed) {
+    bootstrap();
+
+    Random random = new Random(seed);
+    SimpleInventory inventory = new SimpleInventory(size);
+    for (int i = 0; i < size; i++) {
+      inventory.setStack(i, contents.create(random));
+    }
+    return inventory;
+  }
+
+  public static SimpleInventory copy(SimpleInventory source) {
+    SimpleInventory inventory = new SimpleInventory(source.size());
+    for (int i = 0; i < source.size(); i++) {
+      inventory.setStack(i, source.getStack(i).copy());
+    }
+    return inventory;
+  }
+
+  public enum Contents {
+    HOMOGENEOUS {
+      @Override
+      ItemStack create(Random random) {
+        return new ItemStack(Items.COBBLESTONE, 1 + random.nextInt(64));
+      }
+    },
+    RANDOM {
+      @Override
+      ItemStack create(Random random) {
+        if (random.nextInt(4) == 0) {
+          return ItemStack.EMPTY;
+        }
+        return new ItemStack(STACKABLES[random.nextInt(STACKABLES.length)], 1 + random.nextInt(64));
+      }
+    },
+    ENCHANTED {
+      @Override
+      ItemStack create(Random random) {
+        ItemStack itemStack = new ItemStack(GEAR[random.nextInt(GEAR.length)]);
+        int count = 2 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+          Enchantment enchantment = ENCHANTMENTS[random.nextInt(ENCHANTMENTS.length)];
+          itemStack.addEnchantment(enchantment, 1 + random.nextInt(enchantment.getMaxLevel()));
+        }
+        if (itemStack.isDamageable()) {
+          itemStack.setDamage(random.nextInt(itemStack.getMaxDamage()));
+        }
+        return itemStack;
+      }
+    };
+
+    abstract ItemStack create(Random random);
+  }
+}
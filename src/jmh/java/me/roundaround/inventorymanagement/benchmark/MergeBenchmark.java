@@ -0,0 +1,51 @@
+package me.roundaround.inventorymanagement.benchmark;
+
+import me.roundaround.inventorymanagement.inventory.InventoryHelper;
+import me.roundaround.inventorymanagement.inventory.InventoryPlanner;
+import me.roundaround.inventorymanagement.inventory.InventorySnapshot;
+import net.minecraft.inventory.SimpleInventory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MergeBenchmark {
+  @Param({"27", "54", "256", "1024", "4096"})
+  public int slots;
+
+  @Param({"HOMOGENEOUS", "RANDOM"})
+  public InventoryFixtures.Contents contents;
+
+  private SimpleInventory inventory;
+  private InventorySnapshot snapshot;
+  private int[] keyIds;
+  private int[] counts;
+  private int[] origins;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    this.inventory = InventoryFixtures.create(this.contents, this.slots, this.slots);
+    this.snapshot = InventorySnapshot.of(this.inventory, InventoryHelper.SlotRange.fullRange(this.inventory));
+    this.keyIds = new int[this.slots];
+    this.counts = new int[this.slots];
+    this.origins = new int[this.slots];
+  }
+
+  /**
+   * Captures the snapshot that every sort starts from.
+   */
+  @Benchmark
+  public InventorySnapshot snapshot() {
+    return InventorySnapshot.of(this.inventory, InventoryHelper.SlotRange.fullRange(this.inventory));
+  }
+
+  /**
+   * Merges a captured snapshot into sort entries. Merging doesn't modify the snapshot, so it is reused.
+   */
+  @Benchmark
+  public int merge() {
+    return InventoryPlanner.merge(this.snapshot, this.keyIds, this.counts, this.origins);
+  }
+}
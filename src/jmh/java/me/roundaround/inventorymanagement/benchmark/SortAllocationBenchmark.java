@@ -0,0 +1,75 @@
+package me.roundaround.inventorymanagement.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import me.roundaround.inventorymanagement.api.SortStrategyRegistry;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper;
+import me.roundaround.inventorymanagement.inventory.InventoryPlan;
+import me.roundaround.inventorymanagement.inventory.InventoryPlanner;
+import me.roundaround.inventorymanagement.inventory.InventorySnapshot;
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the sort hot path stays allocation-free. Planning a full sort of an already sorted snapshot runs the
+ * merge, key build and sort over every slot but produces an empty plan, so once the per-thread scratch buffers have
+ * grown it should allocate the same few hundred bytes for the empty plan whatever the slot count. The gc profiler
+ * reports this as {@code gc.alloc.rate.norm}; in addition, tear-down measures it directly and fails the run if it
+ * exceeds {@link #MAX_BYTES_PER_OP}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SortAllocationBenchmark {
+  private static final long MAX_BYTES_PER_OP = 1024;
+  private static final int CHECK_ITERATIONS = 1000;
+
+  @Param({"27", "1024", "4096"})
+  public int slots;
+
+  @Param({"RANDOM", "ENCHANTED"})
+  public InventoryFixtures.Contents contents;
+
+  @Param({"inventorymanagement:name", "inventorymanagement:registry"})
+  public String strategyId;
+
+  private SortStrategy strategy;
+  private InventorySnapshot snapshot;
+  private InventoryPlan plan;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    SimpleInventory inventory = InventoryFixtures.create(this.contents, this.slots, this.slots);
+    this.strategy = SortStrategyRegistry.get(new Identifier(this.strategyId));
+    InventoryHelper.sortInventory(inventory, InventoryHelper.SlotRange.fullRange(inventory), this.strategy);
+    this.snapshot = InventorySnapshot.of(inventory, InventoryHelper.SlotRange.fullRange(inventory));
+  }
+
+  @Benchmark
+  public InventoryPlan planSortedSnapshot() {
+    return InventoryPlanner.planSort(this.snapshot, this.strategy, false);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkAllocations() {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long before = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < CHECK_ITERATIONS; i++) {
+      this.plan = this.planSortedSnapshot();
+    }
+    long bytesPerOp = (threads.getCurrentThreadAllocatedBytes() - before) / CHECK_ITERATIONS;
+
+    if (!this.plan.isEmpty()) {
+      throw new IllegalStateException("Planning a sorted snapshot produced " + this.plan.size() + " moves");
+    }
+    if (bytesPerOp > MAX_BYTES_PER_OP) {
+      throw new IllegalStateException(
+          "Planning a sort of " + this.slots + " slots allocated " + bytesPerOp + " bytes per op, more than " +
+              MAX_BYTES_PER_OP);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package me.roundaround.inventorymanagement.benchmark;
+
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import me.roundaround.inventorymanagement.api.SortStrategyRegistry;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper;
+import me.roundaround.inventorymanagement.inventory.InventoryPlan;
+import me.roundaround.inventorymanagement.inventory.InventoryPlanner;
+import me.roundaround.inventorymanagement.inventory.InventorySnapshot;
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SortBenchmark {
+  @Param({"27", "54", "1024", "4096"})
+  public int slots;
+
+  @Param({"HOMOGENEOUS", "RANDOM", "ENCHANTED"})
+  public InventoryFixtures.Contents contents;
+
+  @Param({"inventorymanagement:name", "inventorymanagement:registry"})
+  public String strategyId;
+
+  private SimpleInventory template;
+  private SimpleInventory inventory;
+  private SimpleInventory sorted;
+  private SimpleInventory resorted;
+  private int insertions;
+  private SortStrategy strategy;
+  private InventorySnapshot snapshot;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    this.template = InventoryFixtures.create(this.contents, this.slots, this.slots);
+    this.strategy = SortStrategyRegistry.get(new Identifier(this.strategyId));
+
+    this.sorted = InventoryFixtures.copy(this.template);
+    InventoryHelper.sortInventory(this.sorted, InventoryHelper.SlotRange.fullRange(this.sorted), this.strategy);
+
+    this.resorted = InventoryFixtures.copy(this.sorted);
+    InventoryHelper.sortInventory(this.resorted, InventoryHelper.SlotRange.fullRange(this.resorted), this.strategy);
+
+    this.snapshot = InventorySnapshot.of(this.template, InventoryHelper.SlotRange.fullRange(this.template));
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    ItemStack inserted = this.template.getStack(this.insertions++ % this.slots);
+    this.resorted.setStack(this.slots - 1, inserted.copy());
+
+    this.inventory = InventoryFixtures.copy(this.template);
+  }
+
+  @Benchmark
+  public int sortInventory() {
+    return InventoryHelper.sortInventory(this.inventory, InventoryHelper.SlotRange.fullRange(this.inventory),
+        this.strategy
+    );
+  }
+
+  /**
+   * Re-sorts an inventory that is already in order, which the sort history turns into a single digest pass.
+   */
+  @Benchmark
+  public int sortSortedInventory() {
+    return InventoryHelper.sortInventory(this.sorted, InventoryHelper.SlotRange.fullRange(this.sorted), this.strategy);
+  }
+
+  /**
+   * Re-sorts an inventory that was sorted by the previous invocation and then had its last slot replaced.
+   */
+  @Benchmark
+  public int incrementalSort() {
+    return InventoryHelper.sortInventory(this.resorted, InventoryHelper.SlotRange.fullRange(this.resorted),
+        this.strategy
+    );
+  }
+
+  /**
+   * Plans a full sort of a captured snapshot: the merge, key build and sort that every sort runs, without writing
+   * anything back. Planning doesn't modify the snapshot, so it is reused.
+   */
+  @Benchmark
+  public InventoryPlan planSort() {
+    return InventoryPlanner.planSort(this.snapshot, this.strategy, false);
+  }
+}
@@ -0,0 +1,58 @@
+package me.roundaround.inventorymanagement.benchmark;
+
+import me.roundaround.inventorymanagement.inventory.InventoryHelper;
+import net.minecraft.inventory.SimpleInventory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransferBenchmark {
+  private static final int PLAYER_SIZE = 36;
+
+  @Param({"27", "54", "1024"})
+  public int slots;
+
+  @Param({"HOMOGENEOUS", "RANDOM", "ENCHANTED"})
+  public InventoryFixtures.Contents contents;
+
+  private SimpleInventory containerTemplate;
+  private SimpleInventory playerTemplate;
+  private SimpleInventory container;
+  private SimpleInventory player;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    this.containerTemplate = InventoryFixtures.create(this.contents, this.slots, this.slots);
+
+    // A half-empty player inventory so that both merging and free-slot placement are exercised.
+    this.playerTemplate = InventoryFixtures.create(InventoryFixtures.Contents.RANDOM, PLAYER_SIZE, PLAYER_SIZE);
+    for (int i = 0; i < PLAYER_SIZE; i += 2) {
+      this.playerTemplate.removeStack(i);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    this.container = InventoryFixtures.copy(this.containerTemplate);
+    this.player = InventoryFixtures.copy(this.playerTemplate);
+  }
+
+  @Benchmark
+  public SimpleInventory transferAll() {
+    InventoryHelper.transferEntireInventory(this.container, this.player,
+        InventoryHelper.SlotRange.fullRange(this.container), InventoryHelper.SlotRange.fullRange(this.player)
+    );
+    return this.player;
+  }
+
+  @Benchmark
+  public SimpleInventory autoStack() {
+    InventoryHelper.autoStackInventories(this.container, this.player,
+        InventoryHelper.SlotRange.fullRange(this.container), InventoryHelper.SlotRange.fullRange(this.player), null
+    );
+    return this.player;
+  }
+}
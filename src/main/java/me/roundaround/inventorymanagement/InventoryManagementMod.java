@@ -1,9 +1,17 @@
 package me.roundaround.inventorymanagement;
 
+import me.roundaround.inventorymanagement.api.InventoryManagementCommonEntrypointHandler;
 import me.roundaround.inventorymanagement.config.InventoryManagementConfig;
+import me.roundaround.inventorymanagement.inventory.sorting.ComponentFingerprint;
+import me.roundaround.inventorymanagement.inventory.sorting.ItemRankTable;
 import me.roundaround.inventorymanagement.network.Networking;
+import me.roundaround.inventorymanagement.server.OperationScheduler;
+import me.roundaround.inventorymanagement.server.command.InventoryManagementCommand;
 import me.roundaround.inventorymanagement.server.network.ServerNetworking;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.loader.api.FabricLoader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -15,7 +23,22 @@ public final class InventoryManagementMod implements ModInitializer {
   public void onInitialize() {
     InventoryManagementConfig.getInstance().init();
 
+    FabricLoader.getInstance()
+        .getEntrypointContainers("inventorymanagement-common", InventoryManagementCommonEntrypointHandler.class)
+        .forEach((entrypoint) -> entrypoint.getEntrypoint().onInventoryManagementCommonInit());
+
     Networking.registerC2SPayloads();
+    Networking.registerS2CPayloads();
     ServerNetworking.registerReceivers();
+    ServerNetworking.registerHandshake();
+    OperationScheduler.register();
+    CommandRegistrationCallback.EVENT.register(
+        (dispatcher, registryAccess, environment) -> InventoryManagementCommand.register(dispatcher));
+
+    ServerLifecycleEvents.SERVER_STARTED.register(ComponentFingerprint::useRegistries);
+    ServerLifecycleEvents.SERVER_STARTED.register(ItemRankTable::rebuild);
+    ServerLifecycleEvents.END_DATA_PACK_RELOAD.register(
+        (server, resourceManager, success) -> ItemRankTable.rebuild(server));
+    ServerLifecycleEvents.SERVER_STOPPED.register((server) -> ComponentFingerprint.useRegistries(null));
   }
 }
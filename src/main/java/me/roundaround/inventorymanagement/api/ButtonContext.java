@@ -1,6 +1,6 @@
 package me.roundaround.inventorymanagement.api;
 
-import me.roundaround.inventorymanagement.inventory.InventoryHelper;
+import me.roundaround.inventorymanagement.inventory.SlotTopology;
 import me.roundaround.inventorymanagement.mixin.HandledScreenAccessor;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.ingame.HandledScreen;
@@ -49,7 +49,7 @@ public class ButtonContext<H extends ScreenHandler, S extends HandledScreen<H>>
     ClientPlayerEntity player = MINECRAFT.player;
     if (player != null) {
       this.playerInventory = player.getInventory();
-      this.containerInventory = InventoryHelper.getContainerInventory(player);
+      this.containerInventory = this.screenHandler == null ? null : this.getTopology().getContainerInventory();
     } else {
       this.playerInventory = null;
       this.containerInventory = null;
@@ -88,6 +88,10 @@ public class ButtonContext<H extends ScreenHandler, S extends HandledScreen<H>>
     return referenceSlot;
   }
 
+  public SlotTopology getTopology() {
+    return SlotTopology.of(screenHandler);
+  }
+
   public boolean hasPlayerInventory() {
     return playerInventory != null;
   }
@@ -0,0 +1,9 @@
+package me.roundaround.inventorymanagement.api;
+
+/**
+ * Entrypoint ({@code "inventorymanagement-common"}) invoked on both the client and the dedicated server, for
+ * registrations the server needs to know about, such as {@link SortStrategyRegistry#register}.
+ */
+public interface InventoryManagementCommonEntrypointHandler {
+  void onInventoryManagementCommonInit();
+}
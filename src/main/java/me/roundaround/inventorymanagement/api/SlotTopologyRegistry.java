@@ -0,0 +1,47 @@
+package me.roundaround.inventorymanagement.api;
+
+import me.roundaround.inventorymanagement.inventory.SlotTopology;
+import net.minecraft.screen.AbstractRecipeScreenHandler;
+import net.minecraft.screen.HorseScreenHandler;
+import net.minecraft.screen.ScreenHandler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Providers are looked up whenever a topology is built, which can happen on the network thread while mods are still
+ * registering theirs, so the registry can be read and written from any thread.
+ */
+public abstract class SlotTopologyRegistry {
+  private static final Map<Class<? extends ScreenHandler>, Provider> PROVIDERS = new ConcurrentHashMap<>();
+
+  static {
+    // Saddle and armor
+    register(HorseScreenHandler.class, (screenHandler, builder) -> builder.special(0).special(1));
+    // Crafting and smelting outputs
+    register(AbstractRecipeScreenHandler.class, (screenHandler, builder) -> builder.special(
+        ((AbstractRecipeScreenHandler<?>) screenHandler).getCraftingResultSlotIndex()));
+  }
+
+  /**
+   * Registers a provider for handlers of exactly the given class or any subclass without a provider of its own.
+   */
+  public static void register(Class<? extends ScreenHandler> screenHandlerClass, Provider provider) {
+    PROVIDERS.put(screenHandlerClass, provider);
+  }
+
+  public static Provider getProvider(Class<?> screenHandlerClass) {
+    for (Class<?> clazz = screenHandlerClass; clazz != null; clazz = clazz.getSuperclass()) {
+      Provider provider = PROVIDERS.get(clazz);
+      if (provider != null) {
+        return provider;
+      }
+    }
+    return null;
+  }
+
+  @FunctionalInterface
+  public interface Provider {
+    void configure(ScreenHandler screenHandler, SlotTopology.Builder builder);
+  }
+}
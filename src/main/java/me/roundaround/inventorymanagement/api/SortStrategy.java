@@ -0,0 +1,123 @@
+package me.roundaround.inventorymanagement.api;
+
+import me.roundaround.inventorymanagement.inventory.sorting.SortKey;
+import me.roundaround.inventorymanagement.inventory.sorting.SpecializedComparator;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A named ordering for sorted inventories. Rather than comparing stacks directly, a strategy declares an ordered list
+ * of key extractors. The sort engine runs each extractor once per stack, turns string keys into int ranks, and packs
+ * as many leading keys as fit into a primitive sort key. Stacks still tied after every declared key are ordered by
+ * their component fingerprint.
+ */
+public final class SortStrategy {
+  private final Identifier id;
+  private final List<Key> keys;
+  private final Comparator<SortKey> tieBreaker;
+
+  private SortStrategy(Identifier id, List<Key> keys) {
+    this.id = id;
+    this.keys = List.copyOf(keys);
+    this.tieBreaker = compileTieBreaker(this.keys.size());
+  }
+
+  public static Builder builder(Identifier id) {
+    return new Builder(id);
+  }
+
+  public Identifier getId() {
+    return this.id;
+  }
+
+  public List<Key> getKeys() {
+    return this.keys;
+  }
+
+  /**
+   * Comparator over the compiled keys of stacks sorted with this strategy, ending with the component fingerprint.
+   */
+  public Comparator<SortKey> getTieBreaker() {
+    return this.tieBreaker;
+  }
+
+  private static Comparator<SortKey> compileTieBreaker(int keyCount) {
+    List<Comparator<SortKey>> comparators = new ArrayList<>(keyCount + 1);
+    for (int i = 0; i < keyCount; i++) {
+      int index = i;
+      comparators.add(Comparator.comparingInt((key) -> key.getCompiledKey(index)));
+    }
+    comparators.add(Comparator.comparing(SortKey::getFingerprint));
+    return SpecializedComparator.comparing(comparators);
+  }
+
+  public static final class Key {
+    private final ToIntFunction<SortKey> intExtractor;
+    private final Function<SortKey, String> stringExtractor;
+    private final boolean descending;
+
+    private Key(
+        ToIntFunction<SortKey> intExtractor,
+        Function<SortKey, String> stringExtractor,
+        boolean descending
+    ) {
+      this.intExtractor = intExtractor;
+      this.stringExtractor = stringExtractor;
+      this.descending = descending;
+    }
+
+    public boolean isString() {
+      return this.stringExtractor != null;
+    }
+
+    public boolean isDescending() {
+      return this.descending;
+    }
+
+    public int extractInt(SortKey key) {
+      return this.intExtractor.applyAsInt(key);
+    }
+
+    public String extractString(SortKey key) {
+      return this.stringExtractor.apply(key);
+    }
+  }
+
+  public static final class Builder {
+    private final Identifier id;
+    private final ArrayList<Key> keys = new ArrayList<>();
+
+    private Builder(Identifier id) {
+      this.id = id;
+    }
+
+    public Builder byInt(ToIntFunction<SortKey> extractor) {
+      this.keys.add(new Key(extractor, null, false));
+      return this;
+    }
+
+    public Builder byIntDescending(ToIntFunction<SortKey> extractor) {
+      this.keys.add(new Key(extractor, null, true));
+      return this;
+    }
+
+    public Builder byString(Function<SortKey, String> extractor) {
+      this.keys.add(new Key(null, extractor, false));
+      return this;
+    }
+
+    public Builder byStringDescending(Function<SortKey, String> extractor) {
+      this.keys.add(new Key(null, extractor, true));
+      return this;
+    }
+
+    public SortStrategy build() {
+      return new SortStrategy(this.id, this.keys);
+    }
+  }
+}
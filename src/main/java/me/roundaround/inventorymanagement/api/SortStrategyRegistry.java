@@ -0,0 +1,64 @@
+package me.roundaround.inventorymanagement.api;
+
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import me.roundaround.inventorymanagement.inventory.sorting.BuiltinSortStrategies;
+import net.minecraft.util.Identifier;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public abstract class SortStrategyRegistry {
+  private static final LinkedHashMap<Identifier, SortStrategy> STRATEGIES = new LinkedHashMap<>();
+  private static final Set<String> REPORTED_UNKNOWN = ConcurrentHashMap.newKeySet();
+
+  static {
+    register(BuiltinSortStrategies.NAME);
+    register(BuiltinSortStrategies.REGISTRY);
+    register(BuiltinSortStrategies.COUNT);
+    register(BuiltinSortStrategies.CATEGORY);
+  }
+
+  public static void register(SortStrategy strategy) {
+    STRATEGIES.put(strategy.getId(), strategy);
+  }
+
+  public static SortStrategy getDefault() {
+    return BuiltinSortStrategies.NAME;
+  }
+
+  public static SortStrategy get(Identifier id) {
+    if (id == null) {
+      return getDefault();
+    }
+    return STRATEGIES.getOrDefault(id, getDefault());
+  }
+
+  /**
+   * Looks up the strategy named by the {@code sortStrategy} config option. A bare path like {@code count} refers to
+   * one of this mod's strategies. Ids that don't name a registered strategy fall back to the default, and are logged
+   * the first time they are seen.
+   */
+  public static SortStrategy getConfigured(String value) {
+    Identifier id = Identifier.tryParse(
+        value.indexOf(Identifier.NAMESPACE_SEPARATOR) < 0 ? InventoryManagementMod.MOD_ID + ":" + value : value);
+    SortStrategy strategy = id == null ? null : STRATEGIES.get(id);
+    if (strategy != null) {
+      return strategy;
+    }
+
+    if (REPORTED_UNKNOWN.add(value)) {
+      InventoryManagementMod.LOGGER.warn(
+          "Unknown sort strategy \"{}\" in config, using {} instead. Known strategies: {}", value,
+          getDefault().getId(), STRATEGIES.keySet()
+      );
+    }
+    return getDefault();
+  }
+
+  public static Collection<SortStrategy> getAll() {
+    return Collections.unmodifiableCollection(STRATEGIES.values());
+  }
+}
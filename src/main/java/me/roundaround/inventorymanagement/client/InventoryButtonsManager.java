@@ -7,8 +7,10 @@ import me.roundaround.inventorymanagement.client.gui.widget.button.AutoStackButt
 import me.roundaround.inventorymanagement.client.gui.widget.button.ButtonBase;
 import me.roundaround.inventorymanagement.client.gui.widget.button.SortInventoryButton;
 import me.roundaround.inventorymanagement.client.gui.widget.button.TransferAllButton;
+import me.roundaround.inventorymanagement.client.network.ClientNetworking;
 import me.roundaround.inventorymanagement.config.InventoryManagementConfig;
 import me.roundaround.inventorymanagement.config.value.ButtonVisibility;
+import me.roundaround.inventorymanagement.network.OperationType;
 import me.roundaround.roundalib.config.value.Position;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -17,9 +19,7 @@ import net.fabricmc.fabric.api.client.screen.v1.Screens;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.screen.ingame.HandledScreen;
-import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.inventory.Inventory;
-import net.minecraft.screen.HorseScreenHandler;
 import net.minecraft.screen.ScreenHandler;
 
 import java.util.LinkedHashSet;
@@ -70,6 +70,10 @@ public class InventoryButtonsManager {
       return false;
     }
 
+    if (!ClientNetworking.isSupported(OperationType.SORT)) {
+      return false;
+    }
+
     if (getNumberOfBulkInventorySlots(context) < 3) {
       return false;
     }
@@ -133,6 +137,10 @@ public class InventoryButtonsManager {
       return false;
     }
 
+    if (!ClientNetworking.isSupported(OperationType.STACK)) {
+      return false;
+    }
+
     if (getNumberOfBulkInventorySlots(context) < 3) {
       return false;
     }
@@ -201,6 +209,10 @@ public class InventoryButtonsManager {
       return false;
     }
 
+    if (!ClientNetworking.isSupported(OperationType.TRANSFER)) {
+      return false;
+    }
+
     if (getNumberOfBulkInventorySlots(context) < 3) {
       return false;
     }
@@ -272,19 +284,7 @@ public class InventoryButtonsManager {
   }
 
   private int getNumberOfBulkInventorySlots(ButtonContext<?, ?> context) {
-    return context.getScreenHandler().slots.stream()
-        .filter(slot -> context.isPlayerInventory() == (slot.inventory instanceof PlayerInventory))
-        .filter(slot -> !(context.getScreenHandler() instanceof HorseScreenHandler) || slot.getIndex() >= 2)
-        .mapToInt(slot -> 1)
-        .sum();
-  }
-
-  private int getNumberOfNonPlayerBulkInventorySlots(ButtonContext<?, ?> context) {
-    return context.getScreenHandler().slots.stream()
-        .filter(slot -> !(slot.inventory instanceof PlayerInventory))
-        .filter(slot -> !(context.getScreenHandler() instanceof HorseScreenHandler) || slot.getIndex() >= 2)
-        .mapToInt(slot -> 1)
-        .sum();
+    return context.getTopology().getBulkSlotCount(context.isPlayerInventory());
   }
 
   private Position getButtonOffset(ButtonContext<?, ?> context) {
@@ -322,6 +322,29 @@ public class InventoryButtonsManager {
     return new Position(x, y);
   }
 
+  /**
+   * Sends what the stack and sort keybind does on the current screen as one batch: stack into the container and sort
+   * it, then sort the player inventory, each only if the screen shows the matching button. Returns whether anything
+   * was sent.
+   */
+  public boolean stackAndSort() {
+    ClientNetworking.Batch batch = ClientNetworking.batch();
+    if (hasButton(this.playerButtons, AutoStackButton.class)) {
+      batch.stackIntoContainer();
+    }
+    if (hasButton(this.containerButtons, SortInventoryButton.class)) {
+      batch.sortContainer();
+    }
+    if (hasButton(this.playerButtons, SortInventoryButton.class)) {
+      batch.sortInventory();
+    }
+    return batch.send();
+  }
+
+  private static boolean hasButton(LinkedHashSet<ButtonBase<?, ?>> buttons, Class<?> type) {
+    return buttons.stream().anyMatch(type::isInstance);
+  }
+
   public LinkedList<ButtonBase<?, ?>> getPlayerButtons() {
     return new LinkedList<>(playerButtons);
   }
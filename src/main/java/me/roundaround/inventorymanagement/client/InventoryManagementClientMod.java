@@ -5,18 +5,25 @@ import me.roundaround.inventorymanagement.api.ButtonContext;
 import me.roundaround.inventorymanagement.api.InventoryButtonsRegistry;
 import me.roundaround.inventorymanagement.api.InventoryManagementEntrypointHandler;
 import me.roundaround.inventorymanagement.api.PositioningFunction;
+import me.roundaround.inventorymanagement.client.network.ClientNetworking;
 import me.roundaround.inventorymanagement.compat.roundalib.ConfigControlRegister;
+import me.roundaround.inventorymanagement.event.HandleScreenInputCallback;
+import me.roundaround.inventorymanagement.inventory.sorting.SortKeyCache;
 import me.roundaround.roundalib.config.value.Position;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
 import net.fabricmc.fabric.api.resource.ResourcePackActivationType;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.block.entity.LootableContainerBlockEntity;
+import net.minecraft.client.gui.screen.ingame.HandledScreen;
 import net.minecraft.client.gui.screen.ingame.HopperScreen;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
 import net.minecraft.inventory.EnderChestInventory;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
 import net.minecraft.screen.*;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
@@ -27,6 +34,7 @@ public class InventoryManagementClientMod implements ClientModInitializer {
   public void onInitializeClient() {
     InventoryButtonsManager.INSTANCE.init();
     ConfigControlRegister.init();
+    ClientNetworking.registerReceivers();
 
     FabricLoader.getInstance()
         .getModContainer(InventoryManagementMod.MOD_ID)
@@ -35,6 +43,20 @@ public class InventoryManagementClientMod implements ClientModInitializer {
             Text.literal("Inventory Management Dark UI"), ResourcePackActivationType.NORMAL
         ));
 
+    // Sort names come from the active language, which is swapped on a client resource reload.
+    ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES)
+        .registerReloadListener(new SimpleSynchronousResourceReloadListener() {
+          @Override
+          public Identifier getFabricId() {
+            return new Identifier(InventoryManagementMod.MOD_ID, "sort_key_cache");
+          }
+
+          @Override
+          public void reload(ResourceManager manager) {
+            SortKeyCache.getInstance().invalidate();
+          }
+        });
+
     initKeyBindings();
     initButtonRegistry();
   }
@@ -45,6 +67,18 @@ public class InventoryManagementClientMod implements ClientModInitializer {
             "inventorymanagement.keybind.category"
         ));
 
+    KeyBinding stackAndSortKeybind = KeyBindingHelper.registerKeyBinding(
+        new KeyBinding("inventorymanagement.keybind.stack_and_sort", InputUtil.Type.KEYSYM,
+            InputUtil.UNKNOWN_KEY.getCode(), "inventorymanagement.keybind.category"
+        ));
+
+    HandleScreenInputCallback.EVENT.register((screen, keyCode, scanCode, modifiers) -> {
+      if (!(screen instanceof HandledScreen) || !stackAndSortKeybind.matchesKey(keyCode, scanCode)) {
+        return false;
+      }
+      return InventoryButtonsManager.INSTANCE.stackAndSort();
+    });
+
     //    HandleScreenInputCallback.EVENT.register((screen, keyCode, scanCode, modifiers) -> {
     //      if (!(screen instanceof HandledScreen)) {
     //        return false;
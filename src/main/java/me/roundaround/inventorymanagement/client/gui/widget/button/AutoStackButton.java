@@ -5,6 +5,7 @@ import me.roundaround.inventorymanagement.api.ButtonContext;
 import me.roundaround.inventorymanagement.api.PositioningFunction;
 import me.roundaround.inventorymanagement.client.network.ClientNetworking;
 import me.roundaround.roundalib.config.value.Position;
+import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.screen.ingame.HandledScreen;
 import net.minecraft.screen.ScreenHandler;
 import net.minecraft.text.Text;
@@ -30,10 +31,23 @@ public class AutoStackButton<H extends ScreenHandler, S extends HandledScreen<H>
     return Text.translatable(key);
   }
 
+  /**
+   * With shift held, the inventory the items went into is sorted afterwards, in the same batch.
+   */
   private static PressAction getAction(boolean isPlayerInventory) {
-    return isPlayerInventory ?
-        (button) -> ClientNetworking.sendStackIntoContainerPacket() :
-        (button) -> ClientNetworking.sendStackFromContainerPacket();
+    return isPlayerInventory ? (button) -> {
+      if (Screen.hasShiftDown()) {
+        ClientNetworking.batch().stackIntoContainer().sortContainer().send();
+      } else {
+        ClientNetworking.sendStackIntoContainerPacket();
+      }
+    } : (button) -> {
+      if (Screen.hasShiftDown()) {
+        ClientNetworking.batch().stackFromContainer().sortInventory().send();
+      } else {
+        ClientNetworking.sendStackFromContainerPacket();
+      }
+    };
   }
 
   private static Identifier getIcon(boolean isPlayerInventory) {
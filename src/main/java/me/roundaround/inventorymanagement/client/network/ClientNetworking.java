@@ -1,33 +1,221 @@
 package me.roundaround.inventorymanagement.client.network;
 
+import me.roundaround.inventorymanagement.api.SortStrategyRegistry;
+import me.roundaround.inventorymanagement.config.InventoryManagementConfig;
+import me.roundaround.inventorymanagement.network.BatchOperation;
 import me.roundaround.inventorymanagement.network.Networking;
+import me.roundaround.inventorymanagement.network.OperationType;
+import me.roundaround.inventorymanagement.network.ServerCapabilities;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientConfigurationConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientConfigurationNetworking;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ClientNetworking {
+  private static final RequestThrottle THROTTLE = new RequestThrottle();
+
+  private static volatile ServerCapabilities serverCapabilities = ServerCapabilities.NONE;
+
   private ClientNetworking() {
   }
 
+  public static void registerReceivers() {
+    ClientConfigurationConnectionEvents.INIT.register(
+        (handler, client) -> serverCapabilities = ServerCapabilities.NONE);
+    ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> THROTTLE.reset());
+    ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
+      serverCapabilities = ServerCapabilities.NONE;
+      THROTTLE.reset();
+    });
+    ClientTickEvents.END_CLIENT_TICK.register((client) -> {
+      if (client.player != null) {
+        THROTTLE.tick(client.player.currentScreenHandler);
+      }
+    });
+    ClientConfigurationNetworking.registerGlobalReceiver(Networking.CapabilitiesS2C.ID,
+        (payload, context) -> serverCapabilities = payload.capabilities()
+    );
+    ClientPlayNetworking.registerGlobalReceiver(Networking.OperationResultS2C.ID,
+        (payload, context) -> applyOperationResult(context.player(), payload)
+    );
+  }
+
+  /**
+   * What the server announced while joining. Servers without the mod, or with an incompatible version of it, support
+   * nothing. Requests are held back to stay within the announced rate limits; see {@link RequestThrottle}.
+   */
+  public static ServerCapabilities getServerCapabilities() {
+    return serverCapabilities;
+  }
+
+  public static boolean isSupported(OperationType type) {
+    return serverCapabilities.supports(type);
+  }
+
   public static void sendStackFromContainerPacket() {
-    ClientPlayNetworking.send(new Networking.StackC2S(false));
+    send(OperationType.STACK, new Networking.StackC2S(false));
   }
 
   public static void sendStackIntoContainerPacket() {
-    ClientPlayNetworking.send(new Networking.StackC2S(true));
+    send(OperationType.STACK, new Networking.StackC2S(true));
   }
 
   public static void sendSortContainerPacket() {
-    ClientPlayNetworking.send(new Networking.SortC2S(false));
+    send(OperationType.SORT, new Networking.SortC2S(false, getSortStrategy()));
   }
 
   public static void sendSortInventoryPacket() {
-    ClientPlayNetworking.send(new Networking.SortC2S(true));
+    send(OperationType.SORT, new Networking.SortC2S(true, getSortStrategy()));
   }
 
   public static void sendTransferFromContainerPacket() {
-    ClientPlayNetworking.send(new Networking.TransferC2S(false));
+    send(OperationType.TRANSFER, new Networking.TransferC2S(false));
   }
 
   public static void sendTransferIntoContainerPacket() {
-    ClientPlayNetworking.send(new Networking.TransferC2S(true));
+    send(OperationType.TRANSFER, new Networking.TransferC2S(true));
+  }
+
+  /**
+   * Starts building a batch of operations that the server runs back to back and syncs once.
+   */
+  public static Batch batch() {
+    return new Batch();
+  }
+
+  private static void applyOperationResult(ClientPlayerEntity player, Networking.OperationResultS2C payload) {
+    ScreenHandler handler = payload.syncId() == 0 ? player.playerScreenHandler : player.currentScreenHandler;
+    if (handler == null || handler.syncId != payload.syncId()) {
+      return;
+    }
+
+    int slotCount = handler.slots.size();
+    for (int i = 0; i < payload.moveSlots().length; i++) {
+      if (!isSlot(payload.moveSlots()[i], slotCount) || !isSlot(payload.moveSources()[i], slotCount)) {
+        return;
+      }
+    }
+    for (int slot : payload.contentSlots()) {
+      if (!isSlot(slot, slotCount)) {
+        return;
+      }
+    }
+
+    // Sources can be overwritten by earlier moves, so read all of them before writing anything.
+    ItemStack[] moved = new ItemStack[payload.moveSources().length];
+    for (int i = 0; i < moved.length; i++) {
+      moved[i] = handler.getSlot(payload.moveSources()[i]).getStack().copy();
+    }
+    for (int i = 0; i < moved.length; i++) {
+      handler.setStackInSlot(payload.moveSlots()[i], payload.revision(), moved[i]);
+    }
+    for (int i = 0; i < payload.contentSlots().length; i++) {
+      handler.setStackInSlot(payload.contentSlots()[i], payload.revision(), payload.contents().get(i));
+    }
+  }
+
+  private static boolean isSlot(int slot, int slotCount) {
+    return slot >= 0 && slot < slotCount;
+  }
+
+  private static void send(OperationType type, CustomPayload payload) {
+    if (isSupported(type)) {
+      send(List.of(type), payload);
+    }
+  }
+
+  private static void send(List<OperationType> types, CustomPayload payload) {
+    ClientPlayerEntity player = MinecraftClient.getInstance().player;
+    if (player != null) {
+      THROTTLE.send(types, player.currentScreenHandler, payload);
+    }
+  }
+
+  /**
+   * The configured sort strategy, or the default if the server doesn't know it.
+   */
+  private static Identifier getSortStrategy() {
+    Identifier id =
+        SortStrategyRegistry.getConfigured(InventoryManagementConfig.getInstance().sortStrategy.getValue()).getId();
+    return serverCapabilities.supportsStrategy(id) ? id : SortStrategyRegistry.getDefault().getId();
+  }
+
+  public static final class Batch {
+    private final List<BatchOperation> operations = new ArrayList<>();
+
+    private Batch() {
+    }
+
+    public Batch stackFromContainer() {
+      return this.add(BatchOperation.stack(false));
+    }
+
+    public Batch stackIntoContainer() {
+      return this.add(BatchOperation.stack(true));
+    }
+
+    public Batch sortContainer() {
+      return this.add(BatchOperation.sort(false, getSortStrategy()));
+    }
+
+    public Batch sortInventory() {
+      return this.add(BatchOperation.sort(true, getSortStrategy()));
+    }
+
+    public Batch transferFromContainer() {
+      return this.add(BatchOperation.transfer(false));
+    }
+
+    public Batch transferIntoContainer() {
+      return this.add(BatchOperation.transfer(true));
+    }
+
+    /**
+     * Sends the batch, unless it is empty. Operations the server doesn't support are left out, and if the server
+     * doesn't accept batches the rest are sent one by one. Returns whether anything was sent or queued to be sent.
+     */
+    public boolean send() {
+      if (this.operations.isEmpty()) {
+        return false;
+      }
+
+      if (serverCapabilities.supportsBatch()) {
+        ClientNetworking.send(this.operations.stream().map(BatchOperation::type).toList(),
+            new Networking.BatchC2S(List.copyOf(this.operations))
+        );
+      } else {
+        this.operations.forEach((operation) -> ClientNetworking.send(List.of(operation.type()), toPayload(operation)));
+      }
+      return true;
+    }
+
+    private static CustomPayload toPayload(BatchOperation operation) {
+      return switch (operation.type()) {
+        case SORT -> new Networking.SortC2S(operation.playerSide(), operation.strategy());
+        case STACK -> new Networking.StackC2S(operation.playerSide());
+        case TRANSFER -> new Networking.TransferC2S(operation.playerSide());
+      };
+    }
+
+    private Batch add(BatchOperation operation) {
+      if (!isSupported(operation.type())) {
+        return this;
+      }
+      if (this.operations.size() >= Networking.BatchC2S.MAX_OPERATIONS) {
+        throw new IllegalStateException("Batches hold at most " + Networking.BatchC2S.MAX_OPERATIONS + " operations");
+      }
+      this.operations.add(operation);
+      return this;
+    }
   }
 }
@@ -0,0 +1,107 @@
+package me.roundaround.inventorymanagement.client.network;
+
+import me.roundaround.inventorymanagement.network.OperationType;
+import me.roundaround.inventorymanagement.network.ServerCapabilities;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.screen.ScreenHandler;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps requests within the rate limits announced in the server's {@link ServerCapabilities}, which the server
+ * enforces by dropping whatever exceeds them. Mirrors the server's per-type token buckets; requests that don't fit are
+ * queued and sent on a later tick, as long as the screen they were made from is still open. The buckets hold one token
+ * less than the announced burst where it allows, so that requests delivered closer together than they were sent still
+ * fit on the server. Only used on the client thread.
+ */
+final class RequestThrottle {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final int MAX_PENDING = 16;
+
+  private final double[] tokens = new double[OperationType.values().length];
+  private final ArrayDeque<Request> pending = new ArrayDeque<>();
+  private long lastRefill = System.nanoTime();
+
+  /**
+   * Drops every pending request and refills the buckets, for a new connection.
+   */
+  void reset() {
+    this.pending.clear();
+    Arrays.fill(this.tokens, getCapacity());
+    this.lastRefill = System.nanoTime();
+  }
+
+  /**
+   * Sends the payload now if the buckets allow it and nothing is queued ahead of it, and queues it otherwise. Requests
+   * beyond {@link #MAX_PENDING} are dropped, like the server would.
+   */
+  void send(List<OperationType> types, ScreenHandler screenHandler, CustomPayload payload) {
+    if (this.pending.isEmpty() && this.tryAcquire(types)) {
+      ClientPlayNetworking.send(payload);
+      return;
+    }
+    if (this.pending.size() < MAX_PENDING) {
+      this.pending.add(new Request(types, screenHandler, payload));
+    }
+  }
+
+  /**
+   * Sends queued requests in order for as long as the buckets allow. Requests made from a screen that is no longer
+   * open are dropped, since the server would run them against whatever screen is open now.
+   */
+  void tick(ScreenHandler currentScreenHandler) {
+    while (!this.pending.isEmpty()) {
+      Request request = this.pending.peek();
+      if (request.screenHandler() != currentScreenHandler) {
+        this.pending.poll();
+        continue;
+      }
+      if (!this.tryAcquire(request.types())) {
+        return;
+      }
+      this.pending.poll();
+      ClientPlayNetworking.send(request.payload());
+    }
+  }
+
+  private boolean tryAcquire(List<OperationType> types) {
+    ServerCapabilities capabilities = ClientNetworking.getServerCapabilities();
+    int capacity = getCapacity();
+    long now = System.nanoTime();
+    for (OperationType type : OperationType.values()) {
+      double refilled = this.tokens[type.ordinal()] +
+          (double) (now - this.lastRefill) * capabilities.getRateLimit(type) / NANOS_PER_SECOND;
+      this.tokens[type.ordinal()] = Math.min(capacity, refilled);
+    }
+    this.lastRefill = now;
+
+    int[] needed = new int[this.tokens.length];
+    for (OperationType type : types) {
+      needed[type.ordinal()]++;
+    }
+    for (OperationType type : OperationType.values()) {
+      if (capabilities.getRateLimit(type) > 0 &&
+          this.tokens[type.ordinal()] < Math.min(needed[type.ordinal()], capacity)) {
+        return false;
+      }
+    }
+
+    for (OperationType type : OperationType.values()) {
+      if (capabilities.getRateLimit(type) > 0) {
+        this.tokens[type.ordinal()] -= Math.min(needed[type.ordinal()], capacity);
+      }
+    }
+    return true;
+  }
+
+  private static int getCapacity() {
+    int burst = ClientNetworking.getServerCapabilities().rateLimitBurst();
+    return Math.max(1, burst - 1);
+  }
+
+  private record Request(List<OperationType> types, ScreenHandler screenHandler, CustomPayload payload) {
+  }
+}
@@ -1,13 +1,16 @@
 package me.roundaround.inventorymanagement.config;
 
 import me.roundaround.inventorymanagement.InventoryManagementMod;
+import me.roundaround.inventorymanagement.api.SortStrategyRegistry;
 import me.roundaround.inventorymanagement.config.option.PerScreenConfigOption;
 import me.roundaround.inventorymanagement.config.value.PerScreenConfig;
 import me.roundaround.roundalib.config.ConfigPath;
 import me.roundaround.roundalib.config.manage.ModConfigImpl;
 import me.roundaround.roundalib.config.manage.store.GameScopedFileStore;
 import me.roundaround.roundalib.config.option.BooleanConfigOption;
+import me.roundaround.roundalib.config.option.IntConfigOption;
 import me.roundaround.roundalib.config.option.PositionConfigOption;
+import me.roundaround.roundalib.config.option.StringConfigOption;
 import me.roundaround.roundalib.config.value.Position;
 import me.roundaround.roundalib.nightconfig.core.Config;
 import net.fabricmc.loader.api.FabricLoader;
@@ -32,8 +35,14 @@ public class InventoryManagementConfig extends ModConfigImpl implements GameScop
   public BooleanConfigOption showSort;
   public BooleanConfigOption showTransfer;
   public BooleanConfigOption showStack;
+  public StringConfigOption sortStrategy;
   public PositionConfigOption defaultPosition;
   public PerScreenConfigOption perScreenConfigs;
+  public IntConfigOption operationBudget;
+  public IntConfigOption sortRateLimit;
+  public IntConfigOption stackRateLimit;
+  public IntConfigOption transferRateLimit;
+  public IntConfigOption rateLimitBurst;
 
   public InventoryManagementConfig() {
     super(InventoryManagementMod.MOD_ID, 2);
@@ -61,6 +70,12 @@ public class InventoryManagementConfig extends ModConfigImpl implements GameScop
         .setComment("Whether or not to show autostack buttons in the UI.")
         .build());
 
+    sortStrategy = this.register(StringConfigOption.builder(ConfigPath.of("sortStrategy"))
+        .setDefaultValue(SortStrategyRegistry.getDefault().getId().toString())
+        .setComment("Which sort strategy to use (name, registry, count or category, or the full id of one added by " +
+            "another mod). Unknown ids fall back to name.")
+        .build());
+
     defaultPosition = this.register(PositionConfigOption.builder(ConfigPath.of("defaultPosition"))
         .setDefaultValue(new Position(-4, -1))
         .onUpdate(
@@ -72,6 +87,41 @@ public class InventoryManagementConfig extends ModConfigImpl implements GameScop
         .setDefaultValue(new PerScreenConfig())
         .setComment("Customize settings on a per-screen basis.")
         .build()).noGuiControl().commit();
+
+    operationBudget = this.register(IntConfigOption.builder(ConfigPath.of("operationBudget"))
+        .setDefaultValue(2000)
+        .setMinValue(100)
+        .setMaxValue(50000)
+        .setComment("Server only: microseconds per tick to spend on sorts and transfers requested by players.")
+        .build());
+
+    sortRateLimit = this.register(IntConfigOption.builder(ConfigPath.of("sortRateLimit"))
+        .setDefaultValue(10)
+        .setMinValue(1)
+        .setMaxValue(1000)
+        .setComment("Server only: sorts each player may request per second.")
+        .build());
+
+    stackRateLimit = this.register(IntConfigOption.builder(ConfigPath.of("stackRateLimit"))
+        .setDefaultValue(10)
+        .setMinValue(1)
+        .setMaxValue(1000)
+        .setComment("Server only: autostacks each player may request per second.")
+        .build());
+
+    transferRateLimit = this.register(IntConfigOption.builder(ConfigPath.of("transferRateLimit"))
+        .setDefaultValue(10)
+        .setMinValue(1)
+        .setMaxValue(1000)
+        .setComment("Server only: transfers each player may request per second.")
+        .build());
+
+    rateLimitBurst = this.register(IntConfigOption.builder(ConfigPath.of("rateLimitBurst"))
+        .setDefaultValue(20)
+        .setMinValue(1)
+        .setMaxValue(1000)
+        .setComment("Server only: requests of each kind a player may send at once before the rate limits apply.")
+        .build());
   }
 
   private String i18n(String key) {
@@ -1,27 +1,58 @@
 package me.roundaround.inventorymanagement.inventory;
 
-import me.roundaround.inventorymanagement.inventory.sorting.ItemStackComparator;
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import me.roundaround.inventorymanagement.api.SortStrategyRegistry;
+import me.roundaround.inventorymanagement.inventory.sorting.AsyncSorter;
+import me.roundaround.inventorymanagement.inventory.sorting.SortHistory;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.inventory.Inventory;
-import net.minecraft.item.ItemStack;
-import net.minecraft.screen.HorseScreenHandler;
 import net.minecraft.screen.ScreenHandler;
+import net.minecraft.server.MinecraftServer;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.BiFunction;
 
 public class InventoryHelper {
   public static void sortInventory(PlayerEntity player, boolean isPlayerInventory) {
-    Inventory containerInventory = getContainerInventory(player);
-    Inventory inventory = isPlayerInventory || containerInventory == null ? player.getInventory() : containerInventory;
+    sortInventory(player, isPlayerInventory, SortStrategyRegistry.getDefault());
+  }
+
+  public static void sortInventory(PlayerEntity player, boolean isPlayerInventory, SortStrategy strategy) {
+    ScreenHandler screenHandler =
+        player.currentScreenHandler == null ? player.playerScreenHandler : player.currentScreenHandler;
+    sortInventory(player, screenHandler, isPlayerInventory, strategy);
+  }
+
+  /**
+   * Sorts one side of {@code screenHandler}, the screen the request was made from, handing ranges large enough for
+   * {@link AsyncSorter} to the background. If the player no longer has the screen open, or the container side was
+   * requested and the screen shows no container, nothing is done. Returns the number of slots sorted on this thread,
+   * which is {@code 0} for background sorts.
+   */
+  public static int sortInventory(
+      PlayerEntity player, ScreenHandler screenHandler, boolean isPlayerInventory, SortStrategy strategy
+  ) {
+    if (screenHandler == null || player.currentScreenHandler != screenHandler) {
+      return 0;
+    }
+
+    SlotTopology topology = SlotTopology.of(screenHandler);
+    Inventory inventory = isPlayerInventory ? player.getInventory() : topology.getContainerInventory();
+    if (inventory == null) {
+      return 0;
+    }
+    SlotRange slotRange = topology.getBulkRange(inventory);
 
-    if (inventory instanceof PlayerInventory) {
-      sortInventory(inventory, SlotRange.playerMainRange());
-    } else {
-      sortInventory(inventory);
+    MinecraftServer server = player.getServer();
+    if (server != null && AsyncSorter.shouldSortAsync(slotRange)) {
+      AsyncSorter.sort(server, inventory, slotRange, strategy);
+      return 0;
     }
+
+    try (SyncScope ignored = SyncScope.open(server, inventory)) {
+      sortInventory(inventory, slotRange, strategy);
+    }
+    return slotRange.size();
   }
 
   public static void sortInventory(Inventory inventory) {
@@ -32,104 +63,145 @@ public class InventoryHelper {
     sortInventory(inventory, new SlotRange(start, end));
   }
 
-  public static void sortInventory(Inventory inventory, SlotRange slotRange) {
-    List<ItemStack> stacks = new ArrayList<>(slotRange.size());
+  public static int sortInventory(Inventory inventory, SlotRange slotRange) {
+    return sortInventory(inventory, slotRange, SortStrategyRegistry.getDefault());
+  }
 
-    for (int i = slotRange.min(); i < slotRange.max(); i++) {
-      stacks.add(inventory.getStack(i).copy());
+  /**
+   * Sorts the given slot range and returns the number of slots that had to be written. Slots whose contents are
+   * already correct are left untouched to avoid needless dirty marking and slot syncs. If the range has not changed
+   * since this method last sorted it with the same strategy, nothing is done at all; if only a few slots changed, only
+   * their stacks are sorted and merged into the rest.
+   */
+  public static int sortInventory(Inventory inventory, SlotRange slotRange, SortStrategy strategy) {
+    InventorySnapshot snapshot = InventorySnapshot.of(inventory, slotRange);
+    SortHistory.Entry previous = SortHistory.get(inventory, slotRange, strategy);
+    if (snapshot.isUnchangedSince(previous)) {
+      return 0;
     }
 
-    stacks = stacks.stream().filter(itemStack -> !itemStack.isEmpty()).toList();
-
-    for (int i = 0; i < stacks.size(); i++) {
-      for (int j = i + 1; j < stacks.size(); j++) {
-        ItemStack a = stacks.get(i);
-        ItemStack b = stacks.get(j);
-
-        if (canStacksBeMerged(a, b)) {
-          int itemsToShift = Math.min(a.getMaxCount() - a.getCount(), b.getCount());
-          if (itemsToShift > 0) {
-            a.increment(itemsToShift);
-            b.decrement(itemsToShift);
-          }
-        }
-      }
+    InventoryPlan plan = InventoryPlanner.planSort(snapshot, strategy, previous, false);
+    int writes = plan.isEmpty() ? 0 : InventoryPlanCommitter.commit(plan, null, inventory);
+    if (writes < 0) {
+      InventoryManagementMod.LOGGER.warn("Rolled back sort of {} slots", slotRange.size());
+      return 0;
     }
+    SortHistory.record(inventory, strategy, snapshot.withMoves(plan, InventoryPlan.TARGET));
 
-    stacks = stacks.stream()
-        .filter(itemStack -> !itemStack.isEmpty())
-        .sorted(ItemStackComparator.comparator())
-        .toList();
-
-    for (int slotIndex = slotRange.min(); slotIndex < slotRange.max(); slotIndex++) {
-      int stacksIndex = slotIndex - slotRange.min();
-      ItemStack itemStack = stacksIndex < stacks.size() ? stacks.get(stacksIndex) : ItemStack.EMPTY;
-      inventory.setStack(slotIndex, itemStack);
+    if (InventoryManagementMod.LOGGER.isDebugEnabled()) {
+      InventoryManagementMod.LOGGER.debug("Sorted {} slots with {} writes", slotRange.size(), writes);
     }
+    return writes;
   }
 
   public static void autoStack(PlayerEntity player, boolean fromPlayerInventory) {
-    Inventory containerInventory = getContainerInventory(player);
-    if (containerInventory == null) {
-      return;
-    }
-
-    Inventory playerInventory = player.getInventory();
+    autoStack(player, player.currentScreenHandler, fromPlayerInventory, 0, Integer.MAX_VALUE);
+  }
 
-    if (fromPlayerInventory) {
-      autoStackInventories(playerInventory, containerInventory, player);
-    } else {
-      autoStackInventories(containerInventory, playerInventory, player);
-    }
+  /**
+   * Auto-stacks at most {@code maxSlots} source slots, beginning {@code start} slots into the source range, and
+   * returns where the next slice begins, or {@code -1} once the whole range was handled. {@code screenHandler} is the
+   * screen the request was made from; if the player no longer has it open, nothing is done and {@code -1} is
+   * returned, so the rest of the operation never runs against a screen it wasn't meant for. Running every slice in
+   * order, with nothing else touching the inventories in between, has the same result as a single call.
+   */
+  public static int autoStack(
+      PlayerEntity player, ScreenHandler screenHandler, boolean fromPlayerInventory, int start, int maxSlots
+  ) {
+    return transferSlice(player, screenHandler, fromPlayerInventory, false, start, maxSlots);
   }
 
   public static void transferAll(PlayerEntity player, boolean fromPlayerInventory) {
-    Inventory containerInventory = getContainerInventory(player);
+    transferAll(player, player.currentScreenHandler, fromPlayerInventory, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Like {@link #autoStack(PlayerEntity, ScreenHandler, boolean, int, int)}, for
+   * {@link #transferAll(PlayerEntity, boolean)}.
+   */
+  public static int transferAll(
+      PlayerEntity player, ScreenHandler screenHandler, boolean fromPlayerInventory, int start, int maxSlots
+  ) {
+    return transferSlice(player, screenHandler, fromPlayerInventory, true, start, maxSlots);
+  }
+
+  private static int transferSlice(
+      PlayerEntity player,
+      ScreenHandler screenHandler,
+      boolean fromPlayerInventory,
+      boolean transferAll,
+      int start,
+      int maxSlots
+  ) {
+    if (screenHandler == null || player.currentScreenHandler != screenHandler) {
+      return -1;
+    }
+
+    SlotTopology topology = SlotTopology.of(screenHandler);
+    Inventory containerInventory = topology.getContainerInventory();
     if (containerInventory == null) {
-      return;
+      return -1;
     }
 
     Inventory playerInventory = player.getInventory();
 
-    SlotRange playerSlotRange = SlotRange.playerMainRange();
-    SlotRange containerSlotRange = SlotRange.fullRange(containerInventory);
+    SlotRange playerSlotRange = getTransferRange(topology, playerInventory, transferAll);
+    SlotRange containerSlotRange = getTransferRange(topology, containerInventory, transferAll);
 
-    if (player.currentScreenHandler instanceof HorseScreenHandler) {
-      containerSlotRange = SlotRange.horseMainRange(containerInventory);
+    Inventory from = fromPlayerInventory ? playerInventory : containerInventory;
+    Inventory to = fromPlayerInventory ? containerInventory : playerInventory;
+    SlotRange fromRange = fromPlayerInventory ? playerSlotRange : containerSlotRange;
+    SlotRange toRange = fromPlayerInventory ? containerSlotRange : playerSlotRange;
+    if (start >= fromRange.size()) {
+      return -1;
     }
-
-    if (fromPlayerInventory) {
-      transferEntireInventory(playerInventory, containerInventory, playerSlotRange, containerSlotRange,
-          player.playerScreenHandler, player.currentScreenHandler, player
-      );
-    } else {
-      transferEntireInventory(containerInventory, playerInventory, containerSlotRange, playerSlotRange,
-          player.currentScreenHandler, player.playerScreenHandler, player
-      );
+    SlotRange slice = fromRange.slice(start, maxSlots);
+
+    try (SyncScope ignored = SyncScope.open(player.getServer(), playerInventory, containerInventory)) {
+      if (!transferAll) {
+        autoStackInventories(from, to, slice, toRange, player);
+      } else if (fromPlayerInventory) {
+        transferEntireInventory(from, to, slice, toRange, player.playerScreenHandler, screenHandler, player);
+      } else {
+        transferEntireInventory(from, to, slice, toRange, screenHandler, player.playerScreenHandler, player);
+      }
     }
+
+    return slice.max() < fromRange.max() ? start + slice.size() : -1;
   }
 
-  private static void autoStackInventories(
-      Inventory from, Inventory to, PlayerEntity player
+  /**
+   * The number of source slots that the sliced {@link #transferAll(PlayerEntity, ScreenHandler, boolean, int, int)},
+   * or {@link #autoStack(PlayerEntity, ScreenHandler, boolean, int, int)} if {@code transferAll} is unset, go through
+   * on the screen, or {@code 0} if it shows no container.
+   */
+  public static int getTransferSlotCount(
+      PlayerEntity player, ScreenHandler screenHandler, boolean fromPlayerInventory, boolean transferAll
   ) {
-    autoStackInventories(from, to, SlotRange.fullRange(from), SlotRange.fullRange(to), player);
+    SlotTopology topology = SlotTopology.of(screenHandler);
+    Inventory containerInventory = topology.getContainerInventory();
+    if (containerInventory == null) {
+      return 0;
+    }
+    return getTransferRange(topology, fromPlayerInventory ? player.getInventory() : containerInventory,
+        transferAll
+    ).size();
+  }
+
+  private static SlotRange getTransferRange(SlotTopology topology, Inventory inventory, boolean transferAll) {
+    return transferAll ? topology.getBulkRange(inventory) : topology.getSlotRange(inventory);
   }
 
-  private static void autoStackInventories(
+  public static void autoStackInventories(
       Inventory from, Inventory to, SlotRange fromRange, SlotRange toRange, PlayerEntity player
   ) {
-    transferEntireInventory(from, to, fromRange, toRange, (fromStack, toStack) -> !toStack.isEmpty(), player);
+    transferEntireInventory(from, to, fromRange, toRange, false, null, null, player);
   }
 
-  private static void transferEntireInventory(
-      Inventory from,
-      Inventory to,
-      SlotRange fromRange,
-      SlotRange toRange,
-      BiFunction<ItemStack, ItemStack, Boolean> predicate,
-      PlayerEntity player
+  public static void transferEntireInventory(
+      Inventory from, Inventory to, SlotRange fromRange, SlotRange toRange
   ) {
-    transferEntireInventory(from, to, fromRange, toRange, predicate, null, null, player);
+    transferEntireInventory(from, to, fromRange, toRange, null, null, null);
   }
 
   private static void transferEntireInventory(
@@ -141,79 +213,35 @@ public class InventoryHelper {
       ScreenHandler toScreenHandler,
       PlayerEntity player
   ) {
-    transferEntireInventory(from, to, fromRange, toRange, (fromStack, toStack) -> true, fromScreenHandler,
-        toScreenHandler, player
-    );
+    transferEntireInventory(from, to, fromRange, toRange, true, fromScreenHandler, toScreenHandler, player);
   }
 
+  /**
+   * Moves every source stack into the target range, as planned by {@link InventoryPlanner#planTransfer}. The plan is
+   * committed as one {@link InventoryTransaction}, so a rejected write or an exception leaves both inventories as
+   * they were.
+   */
   private static void transferEntireInventory(
       Inventory from,
       Inventory to,
       SlotRange fromRange,
       SlotRange toRange,
-      BiFunction<ItemStack, ItemStack, Boolean> predicate,
+      boolean fillEmptySlots,
       ScreenHandler fromScreenHandler,
       ScreenHandler toScreenHandler,
       PlayerEntity player
   ) {
-    for (int toIdx = toRange.min(); toIdx < toRange.max(); toIdx++) {
-      for (int fromIdx = fromRange.min(); fromIdx < fromRange.max(); fromIdx++) {
-        ItemStack fromStack = from.getStack(fromIdx).copy();
-        ItemStack toStack = to.getStack(toIdx).copy();
-
-        if (fromStack.isEmpty()) {
-          continue;
-        }
-
-        if (!predicate.apply(fromStack, toStack)) {
-          continue;
-        }
-
-        if (!canTakeItemFromSlot(fromScreenHandler, fromIdx, player)) {
-          continue;
-        }
-
-        if (!canPlaceItemInSlot(toScreenHandler, toIdx, fromStack)) {
-          continue;
-        }
-
-        if (canStacksBeMerged(toStack, fromStack)) {
-          int space = toStack.getMaxCount() - toStack.getCount();
-          int amount = Math.min(space, fromStack.getCount());
-          if (amount > 0) {
-            toStack.increment(amount);
-            fromStack.decrement(amount);
-
-            to.setStack(toIdx, toStack);
-            from.setStack(fromIdx, fromStack.isEmpty() ? ItemStack.EMPTY : fromStack);
-          }
-        } else if (toStack.isEmpty() && !fromStack.isEmpty()) {
-          to.setStack(toIdx, fromStack);
-          from.setStack(fromIdx, ItemStack.EMPTY);
-        }
-      }
-    }
-  }
-
-  private static boolean canTakeItemFromSlot(ScreenHandler screenHandler, int idx, PlayerEntity player) {
-    if (screenHandler == null) {
-      return true;
-    }
-    try {
-      return screenHandler.getSlot(idx).canTakeItems(player);
-    } catch (IndexOutOfBoundsException e) {
-      return false;
+    ItemKeyTable table = new ItemKeyTable();
+    InventoryPlan plan = InventoryPlanner.planTransfer(InventorySnapshot.of(from, fromRange, table),
+        InventorySnapshot.of(to, toRange, table), fillEmptySlots,
+        SlotAccess.of(fromScreenHandler, from, fromRange, player), SlotAccess.of(toScreenHandler, to, toRange, player)
+    );
+    if (plan.isEmpty()) {
+      return;
     }
-  }
 
-  private static boolean canPlaceItemInSlot(ScreenHandler screenHandler, int idx, ItemStack itemStack) {
-    if (screenHandler == null) {
-      return true;
-    }
-    try {
-      return screenHandler.getSlot(idx).canInsert(itemStack);
-    } catch (IndexOutOfBoundsException e) {
-      return false;
+    if (InventoryPlanCommitter.commit(plan, from, to) < 0) {
+      InventoryManagementMod.LOGGER.warn("Rolled back transfer of {} planned moves", plan.size());
     }
   }
 
@@ -222,17 +250,7 @@ public class InventoryHelper {
     if (currentScreenHandler == null) {
       return null;
     }
-
-    try {
-      return currentScreenHandler.getSlot(0).inventory;
-    } catch (IndexOutOfBoundsException e) {
-      return null;
-    }
-  }
-
-  public static boolean canStacksBeMerged(ItemStack a, ItemStack b) {
-    return !a.isEmpty() && ItemStack.areItemsAndComponentsEqual(a, b) && a.isStackable() &&
-        a.getCount() < a.getMaxCount();
+    return SlotTopology.of(currentScreenHandler).getContainerInventory();
   }
 
   public record SlotRange(int min, int max) {
@@ -240,6 +258,14 @@ public class InventoryHelper {
       return this.max - this.min;
     }
 
+    /**
+     * Returns the part of this range that starts {@code offset} slots in and is at most {@code maxSize} slots long.
+     */
+    public SlotRange slice(int offset, int maxSize) {
+      int min = this.min + Math.min(offset, this.size());
+      return new SlotRange(min, min + Math.min(maxSize, this.max - min));
+    }
+
     public static SlotRange fullRange(Inventory inventory) {
       return new SlotRange(0, inventory.size());
     }
@@ -247,9 +273,5 @@ public class InventoryHelper {
     public static SlotRange playerMainRange() {
       return new SlotRange(PlayerInventory.getHotbarSize(), PlayerInventory.MAIN_SIZE);
     }
-
-    public static SlotRange horseMainRange(Inventory inventory) {
-      return new SlotRange(2, inventory.size());
-    }
   }
 }
@@ -0,0 +1,134 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import net.minecraft.item.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of planning an inventory operation, as a list of moves: count changes to apply to individual slots. A
+ * plan refers to the snapshots it was computed from, so that a committer can check whether it still applies. Plans
+ * hold no references to live inventories and can be kept, compared or handed between threads.
+ * <p>
+ * Moves are stored as parallel arrays rather than one object each, so a plan costs a handful of allocations however
+ * many slots it touches. Move {@code i} adds {@link #getDelta} items of key id {@link #getKey} to the slot, or removes
+ * them if negative. Key ids refer to the {@link ItemKeyTable} of the plan's snapshots.
+ */
+public final class InventoryPlan {
+  public static final int SOURCE = 0;
+  public static final int TARGET = 1;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final InventorySnapshot source;
+  private final InventorySnapshot target;
+  private final int size;
+  private final byte[] sides;
+  private final int[] slots;
+  private final int[] keys;
+  private final int[] deltas;
+
+  private InventoryPlan(InventorySnapshot source, InventorySnapshot target, Builder builder) {
+    this.source = source;
+    this.target = target;
+    this.size = builder.size;
+    this.sides = builder.sides;
+    this.slots = builder.slots;
+    this.keys = builder.keys;
+    this.deltas = builder.deltas;
+  }
+
+  public static Builder builder(InventorySnapshot source, InventorySnapshot target) {
+    return new Builder(source, target);
+  }
+
+  /**
+   * The snapshot of the inventory items are taken from, or {@code null} for single-inventory operations like sorting.
+   */
+  public InventorySnapshot getSource() {
+    return this.source;
+  }
+
+  public InventorySnapshot getTarget() {
+    return this.target;
+  }
+
+  /**
+   * The number of moves. Moves are indexed in the order they must be applied. Consecutive moves on the same slot
+   * belong together; a slot changing from one item to another is a removal followed by an addition.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Whether move {@code i} applies to the {@link #SOURCE} or the {@link #TARGET} inventory.
+   */
+  public int getSide(int i) {
+    return this.sides[i];
+  }
+
+  public int getSlot(int i) {
+    return this.slots[i];
+  }
+
+  public int getKey(int i) {
+    return this.keys[i];
+  }
+
+  /**
+   * Returns the prototype of move {@code i}'s item and components. The returned stack must not be modified.
+   */
+  public ItemStack getItem(int i) {
+    return this.target.getTable().getPrototype(this.keys[i]);
+  }
+
+  public int getDelta(int i) {
+    return this.deltas[i];
+  }
+
+  public static final class Builder {
+    private final InventorySnapshot source;
+    private final InventorySnapshot target;
+    private int size = 0;
+    private byte[] sides = new byte[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private int[] deltas = new int[INITIAL_CAPACITY];
+
+    private Builder(InventorySnapshot source, InventorySnapshot target) {
+      this.source = source;
+      this.target = target;
+    }
+
+    public Builder move(int side, int slot, int key, int delta) {
+      if (delta == 0) {
+        return this;
+      }
+
+      if (this.size == this.slots.length) {
+        int capacity = this.size * 2;
+        this.sides = Arrays.copyOf(this.sides, capacity);
+        this.slots = Arrays.copyOf(this.slots, capacity);
+        this.keys = Arrays.copyOf(this.keys, capacity);
+        this.deltas = Arrays.copyOf(this.deltas, capacity);
+      }
+      this.sides[this.size] = (byte) side;
+      this.slots[this.size] = slot;
+      this.keys[this.size] = key;
+      this.deltas[this.size] = delta;
+      this.size++;
+      return this;
+    }
+
+    /**
+     * Builds the plan. The builder must not be used afterwards, since the plan takes over its arrays.
+     */
+    public InventoryPlan build() {
+      return new InventoryPlan(this.source, this.target, this);
+    }
+  }
+}
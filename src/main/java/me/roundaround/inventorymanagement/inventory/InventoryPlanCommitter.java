@@ -0,0 +1,77 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Applies {@link InventoryPlan}s to live inventories inside an {@link InventoryTransaction}. Consecutive moves on the
+ * same slot are folded together so that each slot is written once per run of moves. Must be called on the thread that
+ * owns the inventories.
+ */
+public final class InventoryPlanCommitter {
+  private InventoryPlanCommitter() {
+  }
+
+  /**
+   * Whether the inventories still hold what the plan was computed from. Plans computed and committed in the same tick
+   * on the owning thread don't need this check.
+   */
+  public static boolean isCurrent(InventoryPlan plan, Inventory source, Inventory target) {
+    return (plan.getSource() == null || plan.getSource().isCurrent(source)) && plan.getTarget().isCurrent(target);
+  }
+
+  /**
+   * Applies the plan and returns the number of slots written, or {@code -1} if a move didn't match the slot it
+   * applies to, a write was rejected or items would not be conserved. Nothing is changed in that case.
+   */
+  public static int commit(InventoryPlan plan, Inventory source, Inventory target) {
+    try (InventoryTransaction transaction = InventoryTransaction.begin()) {
+      if (apply(plan, source, target, transaction) && transaction.commit()) {
+        return transaction.size();
+      }
+      return -1;
+    }
+  }
+
+  private static boolean apply(
+      InventoryPlan plan, Inventory source, Inventory target, InventoryTransaction transaction
+  ) {
+    int i = 0;
+    while (i < plan.size()) {
+      int side = plan.getSide(i);
+      int slot = plan.getSlot(i);
+      Inventory inventory = side == InventoryPlan.SOURCE ? source : target;
+      ItemStack stack = inventory.getStack(slot);
+
+      for (; i < plan.size(); i++) {
+        if (plan.getSide(i) != side || plan.getSlot(i) != slot) {
+          break;
+        }
+        stack = applyMove(stack, plan.getItem(i), plan.getDelta(i));
+        if (stack == null) {
+          return false;
+        }
+      }
+
+      if (!transaction.setStack(inventory, slot, stack)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static ItemStack applyMove(ItemStack stack, ItemStack item, int delta) {
+    if (stack.isEmpty()) {
+      return delta > 0 ? item.copyWithCount(delta) : null;
+    }
+    if (!ItemStack.areItemsAndComponentsEqual(stack, item)) {
+      return null;
+    }
+
+    int count = stack.getCount() + delta;
+    if (count < 0) {
+      return null;
+    }
+    return count == 0 ? ItemStack.EMPTY : stack.copyWithCount(count);
+  }
+}
@@ -0,0 +1,244 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper.SlotRange;
+import me.roundaround.inventorymanagement.inventory.sorting.PackedKeySorter;
+import me.roundaround.inventorymanagement.inventory.sorting.SortHistory;
+import me.roundaround.inventorymanagement.inventory.sorting.SortKey;
+import me.roundaround.inventorymanagement.inventory.sorting.SortKeyCache;
+import me.roundaround.inventorymanagement.inventory.sorting.SortScratch;
+import net.minecraft.item.ItemStack;
+
+import java.util.stream.IntStream;
+
+/**
+ * Computes {@link InventoryPlan}s from {@link InventorySnapshot}s without touching any inventory. Planning works on the
+ * snapshots' key ids and counts; stacks are only created when a plan is committed, and only for slots that change.
+ * Planning a sort is pure and can run on any thread. Planning a transfer consults {@link SlotAccess} for slot
+ * permissions, so it belongs on the thread that owns the screen handlers unless the permissions were resolved up front.
+ */
+public final class InventoryPlanner {
+  private static final int INCREMENTAL_SORT_MIN = 4;
+  private static final int INCREMENTAL_SORT_RATIO = 8;
+
+  private InventoryPlanner() {
+  }
+
+  public static InventoryPlan planSort(InventorySnapshot snapshot, SortStrategy strategy, boolean parallel) {
+    return planSort(snapshot, strategy, null, parallel);
+  }
+
+  /**
+   * Plans merging and sorting the snapshot's range. If {@code previous} is what the last sort of the range with the
+   * same strategy left behind and only a few slots changed since, only their entries are sorted and merged into the
+   * rest. With {@code parallel} set, sort data is resolved and the keys are sorted with fork-join parallelism, which
+   * stays in the calling worker's pool.
+   */
+  public static InventoryPlan planSort(
+      InventorySnapshot snapshot, SortStrategy strategy, SortHistory.Entry previous, boolean parallel
+  ) {
+    SortScratch scratch = SortScratch.get();
+    ItemKeyTable table = snapshot.getTable();
+    int size = snapshot.size();
+    int[] keyIds = scratch.entryKeys(size);
+    int[] counts = scratch.entryCounts(size);
+    int[] origins = scratch.origins(size);
+
+    try {
+      int count = merge(snapshot, keyIds, counts, origins, scratch);
+
+      if (parallel) {
+        // Resolving names and fingerprints for unseen items dominates the key computation, so warm the shared cache
+        // across the pool before building keys on this thread.
+        SortKeyCache cache = SortKeyCache.getInstance();
+        IntStream.range(0, table.size()).parallel().forEach((id) -> cache.get(table.getPrototype(id)));
+      }
+
+      SortKey[] sortKeys = scratch.keys(table, keyIds, counts, count);
+      int dirtyCount = count;
+      boolean[] clean = scratch.clean(count);
+      if (previous != null) {
+        dirtyCount = 0;
+        for (int i = 0; i < count; i++) {
+          long slotHash = snapshot.getSlotHash(origins[i]);
+          clean[i] = previous.isSlotUnchanged(origins[i], slotHash) &&
+              SortHistory.slotHash(table.getHash(keyIds[i]), counts[i]) == slotHash;
+          if (!clean[i]) {
+            dirtyCount++;
+          }
+        }
+      }
+
+      if (previous != null && dirtyCount <= Math.max(INCREMENTAL_SORT_MIN, count / INCREMENTAL_SORT_RATIO)) {
+        PackedKeySorter.sortIncremental(sortKeys, count, clean, strategy, scratch);
+      } else {
+        PackedKeySorter.sort(sortKeys, count, strategy, scratch, parallel);
+      }
+
+      InventoryPlan.Builder plan = InventoryPlan.builder(null, snapshot);
+      int min = snapshot.getSlotRange().min();
+      for (int i = 0; i < size; i++) {
+        int currentKey = snapshot.getKey(i);
+        int currentCount = snapshot.getCount(i);
+        int sortedKey = -1;
+        int sortedCount = 0;
+        if (i < count) {
+          int entry = sortKeys[i].getTag();
+          sortedKey = keyIds[entry];
+          sortedCount = counts[entry];
+        }
+
+        if (currentKey == sortedKey) {
+          if (currentKey != -1) {
+            plan.move(InventoryPlan.TARGET, min + i, currentKey, sortedCount - currentCount);
+          }
+          continue;
+        }
+        if (currentKey != -1) {
+          plan.move(InventoryPlan.TARGET, min + i, currentKey, -currentCount);
+        }
+        if (sortedKey != -1) {
+          plan.move(InventoryPlan.TARGET, min + i, sortedKey, sortedCount);
+        }
+      }
+      return plan.build();
+    } finally {
+      scratch.release(size);
+    }
+  }
+
+  /**
+   * Merges the snapshot's stacks into entries of key id and count, as the first step of {@link #planSort}, and returns
+   * the number of entries. Each array must hold at least {@link InventorySnapshot#size} entries.
+   */
+  public static int merge(InventorySnapshot snapshot, int[] keyIds, int[] counts, int[] origins) {
+    return merge(snapshot, keyIds, counts, origins, SortScratch.get());
+  }
+
+  /**
+   * Merges the snapshot's stacks into entries of key id and count, with the offset of the slot each entry came from,
+   * and returns the number of entries. For every item and components, the stacks that weren't full are pooled and
+   * refilled up to their max count in the slot order of the stacks they came from, so the first partial stacks end up
+   * full and at most the last one partial. Full stacks and unstackable items are kept as they are, and no items are
+   * created or lost. The incremental re-sort relies on merging an already sorted range giving back its entries
+   * unchanged.
+   */
+  private static int merge(InventorySnapshot snapshot, int[] keyIds, int[] counts, int[] origins, SortScratch scratch) {
+    int[] pooled = scratch.keyTotals(snapshot.getTable().size());
+    for (int i = 0; i < snapshot.size(); i++) {
+      if (isPooled(snapshot, i)) {
+        pooled[snapshot.getKey(i)] += snapshot.getCount(i);
+      }
+    }
+
+    int count = 0;
+    for (int i = 0; i < snapshot.size(); i++) {
+      int key = snapshot.getKey(i);
+      if (key == -1) {
+        continue;
+      }
+
+      int amount = snapshot.getCount(i);
+      if (isPooled(snapshot, i)) {
+        amount = Math.min(snapshot.getMaxCount(i), pooled[key]);
+        if (amount <= 0) {
+          continue;
+        }
+        pooled[key] -= amount;
+      }
+
+      keyIds[count] = key;
+      counts[count] = amount;
+      origins[count] = i;
+      count++;
+    }
+    return count;
+  }
+
+  private static boolean isPooled(InventorySnapshot snapshot, int offset) {
+    return !snapshot.isEmpty(offset) && snapshot.getMaxCount(offset) > 1 &&
+        snapshot.getCount(offset) < snapshot.getMaxCount(offset);
+  }
+
+  /**
+   * Plans moving every source stack into the target range. A source stack first tops up target stacks of the same
+   * item and components in slot order, and then, if {@code fillEmptySlots} is set, whatever is left goes into the
+   * first empty target slot that accepts it. Both snapshots must share an {@link ItemKeyTable}.
+   */
+  public static InventoryPlan planTransfer(
+      InventorySnapshot from,
+      InventorySnapshot to,
+      boolean fillEmptySlots,
+      SlotAccess fromAccess,
+      SlotAccess toAccess
+  ) {
+    if (from.getTable() != to.getTable()) {
+      throw new IllegalArgumentException("Transfer snapshots must share an item key table");
+    }
+
+    InventoryPlan.Builder plan = InventoryPlan.builder(from, to);
+    ItemKeyTable table = to.getTable();
+    TransferIndex index = TransferIndex.of(to);
+    SlotRange fromRange = from.getSlotRange();
+    SlotRange toRange = to.getSlotRange();
+
+    int[] targetCounts = new int[to.size()];
+    int[] targetMaxCounts = new int[to.size()];
+    for (int i = 0; i < to.size(); i++) {
+      targetCounts[i] = to.getCount(i);
+      targetMaxCounts[i] = to.getMaxCount(i);
+    }
+
+    for (int fromIdx = fromRange.min(); fromIdx < fromRange.max(); fromIdx++) {
+      int fromOffset = fromIdx - fromRange.min();
+      int key = from.getKey(fromOffset);
+      if (key == -1) {
+        continue;
+      }
+
+      int toIdx = index.firstPartial(key);
+      if (toIdx == -1 && (!fillEmptySlots || index.firstFree() == -1)) {
+        continue;
+      }
+
+      if (!fromAccess.canTake(fromIdx)) {
+        continue;
+      }
+
+      ItemStack item = table.getPrototype(key);
+      int remaining = from.getCount(fromOffset);
+      while (toIdx != -1 && remaining > 0) {
+        int nextIdx = index.nextPartial(toIdx);
+        int offset = toIdx - toRange.min();
+        if (toAccess.canInsert(toIdx, item)) {
+          int amount = Math.min(targetMaxCounts[offset] - targetCounts[offset], remaining);
+          if (amount > 0) {
+            targetCounts[offset] += amount;
+            remaining -= amount;
+            plan.move(InventoryPlan.TARGET, toIdx, key, amount);
+            index.fill(toIdx, key, targetCounts[offset], targetMaxCounts[offset]);
+          }
+        }
+        toIdx = nextIdx;
+      }
+
+      if (fillEmptySlots && remaining > 0) {
+        for (toIdx = index.firstFree(); toIdx != -1; toIdx = index.nextFree(toIdx)) {
+          if (toAccess.canInsert(toIdx, item)) {
+            int offset = toIdx - toRange.min();
+            targetCounts[offset] = remaining;
+            targetMaxCounts[offset] = from.getMaxCount(fromOffset);
+            plan.move(InventoryPlan.TARGET, toIdx, key, remaining);
+            index.fill(toIdx, key, remaining, targetMaxCounts[offset]);
+            remaining = 0;
+            break;
+          }
+        }
+      }
+
+      plan.move(InventoryPlan.SOURCE, fromIdx, key, remaining - from.getCount(fromOffset));
+    }
+
+    return plan.build();
+  }
+}
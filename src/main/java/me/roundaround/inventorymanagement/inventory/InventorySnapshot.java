@@ -0,0 +1,201 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import me.roundaround.inventorymanagement.inventory.InventoryHelper.SlotRange;
+import me.roundaround.inventorymanagement.inventory.sorting.SortHistory;
+import me.roundaround.inventorymanagement.inventory.sorting.SortScratch;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * Immutable capture of a slot range, safe to hand to another thread. Slots are stored as parallel arrays of item key
+ * ids, counts and max counts, with the ids resolved through an {@link ItemKeyTable}, so capturing a range copies one
+ * prototype per distinct item instead of one stack per slot. Empty slots have the id {@code -1} and a count of zero.
+ * The snapshot's digest doubles as a revision, so {@link #isCurrent} can tell whether the inventory still holds what
+ * was captured.
+ */
+public final class InventorySnapshot {
+  private final SlotRange slotRange;
+  private final ItemKeyTable table;
+  private final int[] keys;
+  private final int[] counts;
+  private final int[] maxCounts;
+  private final long[] slotHashes;
+  private final long digest;
+
+  private InventorySnapshot(
+      SlotRange slotRange, ItemKeyTable table, int[] keys, int[] counts, int[] maxCounts, long[] slotHashes
+  ) {
+    this.slotRange = slotRange;
+    this.table = table;
+    this.keys = keys;
+    this.counts = counts;
+    this.maxCounts = maxCounts;
+    this.slotHashes = slotHashes;
+    this.digest = SortHistory.digest(slotHashes, slotHashes.length);
+  }
+
+  public static InventorySnapshot of(Inventory inventory, SlotRange slotRange) {
+    return of(inventory, slotRange, new ItemKeyTable());
+  }
+
+  /**
+   * Captures the range with ids from the given table. Snapshots that are planned together, like both sides of a
+   * transfer, must share a table so that their ids can be compared directly.
+   */
+  public static InventorySnapshot of(Inventory inventory, SlotRange slotRange, ItemKeyTable table) {
+    int size = slotRange.size();
+    int[] keys = new int[size];
+    int[] counts = new int[size];
+    int[] maxCounts = new int[size];
+    long[] slotHashes = new long[size];
+    for (int i = 0; i < size; i++) {
+      ItemStack itemStack = inventory.getStack(slotRange.min() + i);
+      int key = table.intern(itemStack);
+      keys[i] = key;
+      if (key != -1) {
+        counts[i] = itemStack.getCount();
+        maxCounts[i] = itemStack.getMaxCount();
+        slotHashes[i] = SortHistory.slotHash(table.getHash(key), counts[i]);
+      }
+    }
+    return new InventorySnapshot(slotRange, table, keys, counts, maxCounts, slotHashes);
+  }
+
+  public SlotRange getSlotRange() {
+    return this.slotRange;
+  }
+
+  public ItemKeyTable getTable() {
+    return this.table;
+  }
+
+  public int size() {
+    return this.keys.length;
+  }
+
+  /**
+   * Returns the item key id of the slot at the given offset into the range, or {@code -1} if it was empty.
+   */
+  public int getKey(int offset) {
+    return this.keys[offset];
+  }
+
+  public int getCount(int offset) {
+    return this.counts[offset];
+  }
+
+  public int getMaxCount(int offset) {
+    return this.maxCounts[offset];
+  }
+
+  public boolean isEmpty(int offset) {
+    return this.keys[offset] == -1;
+  }
+
+  public long getSlotHash(int offset) {
+    return this.slotHashes[offset];
+  }
+
+  public long getDigest() {
+    return this.digest;
+  }
+
+  /**
+   * Returns what the range holds once the plan's moves on {@code side}, the side this snapshot was captured for, are
+   * committed. Only the slots the plan touches are recomputed, from this snapshot's table, so recording the result of
+   * a commit neither reads the inventory again nor hashes any components.
+   */
+  public InventorySnapshot withMoves(InventoryPlan plan, int side) {
+    if (plan.isEmpty()) {
+      return this;
+    }
+
+    int[] keys = this.keys.clone();
+    int[] counts = this.counts.clone();
+    int[] maxCounts = this.maxCounts.clone();
+    long[] slotHashes = this.slotHashes.clone();
+    for (int i = 0; i < plan.size(); i++) {
+      if (plan.getSide(i) != side) {
+        continue;
+      }
+
+      int offset = plan.getSlot(i) - this.slotRange.min();
+      if (keys[offset] == -1) {
+        keys[offset] = plan.getKey(i);
+        maxCounts[offset] = this.table.getPrototype(plan.getKey(i)).getMaxCount();
+      }
+      counts[offset] += plan.getDelta(i);
+      if (counts[offset] <= 0) {
+        keys[offset] = -1;
+        counts[offset] = 0;
+        maxCounts[offset] = 0;
+        slotHashes[offset] = 0;
+      } else {
+        slotHashes[offset] = SortHistory.slotHash(this.table.getHash(keys[offset]), counts[offset]);
+      }
+    }
+    return new InventorySnapshot(this.slotRange, this.table, keys, counts, maxCounts, slotHashes);
+  }
+
+  /**
+   * Whether the captured range is exactly what a previous sort left behind, in which case sorting it again is a no-op.
+   */
+  public boolean isUnchangedSince(SortHistory.Entry entry) {
+    return entry != null && entry.isUnchanged(this);
+  }
+
+  /**
+   * Whether both snapshots hold the same items, components and counts in every slot. Hashes only short-circuit
+   * mismatches; ids from the two tables are matched up by comparing their prototypes, once per distinct id.
+   */
+  public boolean hasSameContents(InventorySnapshot other) {
+    if (this.size() != other.size()) {
+      return false;
+    }
+
+    int[] matches = new int[this.table.size()];
+    Arrays.fill(matches, -1);
+    for (int i = 0; i < this.size(); i++) {
+      int key = this.keys[i];
+      int otherKey = other.keys[i];
+      if (this.counts[i] != other.counts[i] || this.slotHashes[i] != other.slotHashes[i] ||
+          (key == -1) != (otherKey == -1)) {
+        return false;
+      }
+      if (key == -1 || matches[key] == otherKey) {
+        continue;
+      }
+      if (matches[key] != -1 ||
+          !ItemStack.areItemsAndComponentsEqual(this.table.getPrototype(key), other.table.getPrototype(otherKey))) {
+        return false;
+      }
+      matches[key] = otherKey;
+    }
+    return true;
+  }
+
+  /**
+   * Whether the inventory's range still holds exactly what was captured. The digest and slot hashes reject changes
+   * cheaply; a match is confirmed like {@link #hasSameContents}, by comparing each slot's count, item and components
+   * with the captured prototype. Must be called on the thread that owns the inventory.
+   */
+  public boolean isCurrent(Inventory inventory) {
+    long[] slotHashes = SortScratch.get().slotHashes(this.slotRange.size());
+    if (SortHistory.digest(inventory, this.slotRange, slotHashes) != this.digest ||
+        !Arrays.equals(this.slotHashes, 0, this.slotHashes.length, slotHashes, 0, this.slotHashes.length)) {
+      return false;
+    }
+
+    for (int i = 0; i < this.size(); i++) {
+      ItemStack itemStack = inventory.getStack(this.slotRange.min() + i);
+      int key = this.keys[i];
+      if (key == -1 ? !itemStack.isEmpty() : itemStack.getCount() != this.counts[i] ||
+          !ItemStack.areItemsAndComponentsEqual(itemStack, this.table.getPrototype(key))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,164 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal of the slots an inventory operation writes, so that the operation can be undone if it fails partway. The
+ * first write to each slot records what it held. {@link #commit} checks that every item is still accounted for across
+ * the touched slots, and closing a transaction that was not committed restores every touched slot in reverse order.
+ * Both are proportional to the number of slots written. Use with try-with-resources on the thread that owns the
+ * inventories.
+ * <p>
+ * Writes replace stacks rather than modifying them, so the journal keeps the original stacks themselves instead of
+ * copies. Each thread reuses one transaction and its buffers; {@link #begin} only allocates a new one when a
+ * transaction is already open on the thread.
+ * <p>
+ * A write is treated as rejected when the inventory doesn't hold the written item, components and count afterwards,
+ * as happens with modded inventories that filter or clamp in {@link Inventory#setStack}. The count is compared with
+ * what was written rather than with the written stack, since an inventory may keep that stack and cap it in place. A
+ * rejected write fails the transaction.
+ */
+public final class InventoryTransaction implements AutoCloseable {
+  private static final ThreadLocal<InventoryTransaction> POOL = ThreadLocal.withInitial(InventoryTransaction::new);
+
+  private final Reference2IntOpenHashMap<Inventory> inventoryIds = new Reference2IntOpenHashMap<>();
+  private final LongOpenHashSet touched = new LongOpenHashSet();
+  private final List<Inventory> inventories = new ArrayList<>();
+  private final IntArrayList slots = new IntArrayList();
+  private final List<ItemStack> originals = new ArrayList<>();
+  private final Object2LongOpenCustomHashMap<ItemStack> balance =
+      new Object2LongOpenCustomHashMap<>(ItemKey.HASH_STRATEGY);
+  private boolean open = false;
+  private boolean failed = false;
+  private boolean finished = false;
+
+  private InventoryTransaction() {
+    this.inventoryIds.defaultReturnValue(-1);
+  }
+
+  public static InventoryTransaction begin() {
+    InventoryTransaction transaction = POOL.get();
+    if (transaction.open) {
+      transaction = new InventoryTransaction();
+    }
+    transaction.open = true;
+    transaction.failed = false;
+    transaction.finished = false;
+    return transaction;
+  }
+
+  /**
+   * Writes the stack into the slot, journaling the slot's previous contents on first write. Returns {@code false}
+   * and fails the transaction if the inventory rejected the write.
+   */
+  public boolean setStack(Inventory inventory, int slot, ItemStack itemStack) {
+    if (this.failed) {
+      return false;
+    }
+
+    int inventoryId = this.inventoryIds.getInt(inventory);
+    if (inventoryId == -1) {
+      inventoryId = this.inventoryIds.size();
+      this.inventoryIds.put(inventory, inventoryId);
+    }
+    if (this.touched.add(((long) inventoryId << 32) | slot)) {
+      this.inventories.add(inventory);
+      this.slots.add(slot);
+      this.originals.add(inventory.getStack(slot));
+    }
+
+    int count = itemStack.getCount();
+    inventory.setStack(slot, itemStack);
+    ItemStack written = inventory.getStack(slot);
+    if (written.getCount() != count || !ItemStack.areItemsAndComponentsEqual(written, itemStack)) {
+      InventoryManagementMod.LOGGER.warn("{} rejected a write of {} x{} to slot {}, which holds {} x{} instead",
+          inventory.getClass().getSimpleName(), itemStack.getItem(), count, slot, written.getItem(), written.getCount()
+      );
+      this.failed = true;
+      return false;
+    }
+    return true;
+  }
+
+  public int size() {
+    return this.slots.size();
+  }
+
+  /**
+   * Commits the transaction if no write was rejected and the touched slots hold the same items as before. Otherwise
+   * rolls back and returns {@code false}.
+   */
+  public boolean commit() {
+    if (this.failed || !this.isConserved()) {
+      this.rollback();
+      return false;
+    }
+    this.finished = true;
+    return true;
+  }
+
+  @Override
+  public void close() {
+    if (!this.finished) {
+      this.rollback();
+    }
+    this.inventoryIds.clear();
+    this.touched.clear();
+    this.inventories.clear();
+    this.slots.clear();
+    this.originals.clear();
+    this.open = false;
+  }
+
+  private boolean isConserved() {
+    try {
+      for (int i = 0; i < this.slots.size(); i++) {
+        ItemStack original = this.originals.get(i);
+        if (!original.isEmpty()) {
+          this.balance.addTo(original, original.getCount());
+        }
+        ItemStack current = this.inventories.get(i).getStack(this.slots.getInt(i));
+        if (!current.isEmpty()) {
+          this.balance.addTo(current, -current.getCount());
+        }
+      }
+
+      for (int i = 0; i < this.slots.size(); i++) {
+        if (!this.isBalanced(this.originals.get(i)) ||
+            !this.isBalanced(this.inventories.get(i).getStack(this.slots.getInt(i)))) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      this.balance.clear();
+    }
+  }
+
+  private boolean isBalanced(ItemStack itemStack) {
+    long difference = itemStack.isEmpty() ? 0 : this.balance.getLong(itemStack);
+    if (difference != 0) {
+      InventoryManagementMod.LOGGER.warn("Inventory operation would change the count of {} by {}",
+          itemStack.getItem(), -difference
+      );
+      return false;
+    }
+    return true;
+  }
+
+  private void rollback() {
+    for (int i = this.slots.size() - 1; i >= 0; i--) {
+      this.inventories.get(i).setStack(this.slots.getInt(i), this.originals.get(i));
+    }
+    this.finished = true;
+  }
+}
@@ -0,0 +1,96 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import it.unimi.dsi.fastutil.Hash;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Hash key identifying an item together with its components, ignoring count. Two keys are equal exactly when
+ * {@link ItemStack#areItemsAndComponentsEqual} holds for their stacks.
+ */
+public final class ItemKey {
+  /**
+   * Hashing strategy with the same semantics as {@link ItemKey}, for fastutil custom hash collections keyed directly
+   * by stacks without wrapping each one in a key.
+   */
+  public static final Hash.Strategy<ItemStack> HASH_STRATEGY = new Hash.Strategy<>() {
+    @Override
+    public int hashCode(ItemStack itemStack) {
+      return itemStack == null ? 0 : hash(itemStack);
+    }
+
+    @Override
+    public boolean equals(ItemStack a, ItemStack b) {
+      if (a == b) {
+        return true;
+      }
+      return a != null && b != null && ItemStack.areItemsAndComponentsEqual(a, b);
+    }
+  };
+
+  private final boolean reusable;
+
+  private ItemStack itemStack;
+  private int hash;
+
+  private ItemKey(ItemStack itemStack, boolean reusable) {
+    this.reusable = reusable;
+    this.itemStack = itemStack;
+    this.hash = itemStack == null ? 0 : hash(itemStack);
+  }
+
+  /**
+   * Creates a key backed by the given stack without copying it. Only use this for transient lookups where the
+   * stack's item and components will not change while the key is in use.
+   */
+  public static ItemKey of(ItemStack itemStack) {
+    return new ItemKey(itemStack, false);
+  }
+
+  /**
+   * Creates a key backed by a single-count copy of the given stack, safe to hold on to indefinitely.
+   */
+  public static ItemKey copyOf(ItemStack itemStack) {
+    return new ItemKey(itemStack.copyWithCount(1), false);
+  }
+
+  /**
+   * Creates an empty key that can be repointed with {@link #set} for allocation-free lookups. Reusable keys must
+   * never be stored in a collection.
+   */
+  public static ItemKey reusable() {
+    return new ItemKey(null, true);
+  }
+
+  public static int hash(ItemStack itemStack) {
+    return 31 * itemStack.getItem().hashCode() + itemStack.getComponents().hashCode();
+  }
+
+  public ItemKey set(ItemStack itemStack) {
+    if (!this.reusable) {
+      throw new IllegalStateException("Only reusable item keys can be repointed");
+    }
+    this.itemStack = itemStack;
+    this.hash = itemStack == null ? 0 : hash(itemStack);
+    return this;
+  }
+
+  public ItemStack getItemStack() {
+    return this.itemStack;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ItemKey other)) {
+      return false;
+    }
+    return this.hash == other.hash && HASH_STRATEGY.equals(this.itemStack, other.itemStack);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+}
@@ -0,0 +1,64 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+import net.minecraft.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interning table assigning dense int ids to distinct item and component combinations. Each id is backed by a
+ * single-count prototype copied the first time the combination is seen, so capturing many slots of the same item costs
+ * one copy instead of one per slot. Two stacks get the same id exactly when {@link ItemKey} considers them equal.
+ * <p>
+ * A table is filled on the thread that owns the inventories being captured and only read afterwards, at which point
+ * it can be shared with other threads along with the snapshots that refer to it.
+ */
+public final class ItemKeyTable {
+  private final Object2IntOpenCustomHashMap<ItemStack> ids = new Object2IntOpenCustomHashMap<>(ItemKey.HASH_STRATEGY);
+  private final List<ItemStack> prototypes = new ArrayList<>();
+  private final IntArrayList hashes = new IntArrayList();
+
+  public ItemKeyTable() {
+    this.ids.defaultReturnValue(-1);
+  }
+
+  /**
+   * Returns the id of the stack's item and components, assigning a new one if they haven't been seen yet, or
+   * {@code -1} for an empty stack.
+   */
+  public int intern(ItemStack itemStack) {
+    if (itemStack.isEmpty()) {
+      return -1;
+    }
+
+    int id = this.ids.getInt(itemStack);
+    if (id == -1) {
+      ItemStack prototype = itemStack.copyWithCount(1);
+      id = this.prototypes.size();
+      this.ids.put(prototype, id);
+      this.prototypes.add(prototype);
+      this.hashes.add(ItemKey.hash(prototype));
+    }
+    return id;
+  }
+
+  public int size() {
+    return this.prototypes.size();
+  }
+
+  /**
+   * Returns the single-count prototype for the id. The returned stack must not be modified.
+   */
+  public ItemStack getPrototype(int id) {
+    return this.prototypes.get(id);
+  }
+
+  /**
+   * Returns the {@link ItemKey#hash} of the id's item and components.
+   */
+  public int getHash(int id) {
+    return this.hashes.getInt(id);
+  }
+}
@@ -0,0 +1,117 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import it.unimi.dsi.fastutil.objects.Object2BooleanOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper.SlotRange;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.CraftingResultSlot;
+import net.minecraft.screen.slot.FurnaceFuelSlot;
+import net.minecraft.screen.slot.FurnaceOutputSlot;
+import net.minecraft.screen.slot.ShulkerBoxSlot;
+import net.minecraft.screen.slot.Slot;
+
+import java.util.Set;
+
+/**
+ * Slot permission checks for one side of a single inventory operation. The screen handler's slots backing the range
+ * are looked up in its {@link SlotTopology} once up front, and {@link Slot#canTakeItems} is evaluated at most once per
+ * slot. {@link Slot#canInsert} is evaluated at most once per slot and stack of the same item and components; for the
+ * vanilla slot classes known to apply the same rule to every instance, results are shared between all slots of the
+ * class. Any other slot, such as a modded filter slot configured per instance, only reuses its own results.
+ * <p>
+ * Without a screen handler every check passes. Inventory slots that the handler does not expose fail every check.
+ */
+public final class SlotAccess {
+  private static final byte UNKNOWN = 0;
+  private static final byte ALLOWED = 1;
+  private static final byte DENIED = 2;
+
+  private static final Set<Class<?>> STATELESS_SLOT_CLASSES = Set.of(Slot.class, ShulkerBoxSlot.class,
+      FurnaceFuelSlot.class, FurnaceOutputSlot.class, CraftingResultSlot.class
+  );
+
+  private final SlotRange slotRange;
+  private final Slot[] slots;
+  private final byte[] canTake;
+  private final Object2BooleanOpenCustomHashMap<ItemStack>[] canInsert;
+  private final PlayerEntity player;
+  private final Reference2ObjectOpenHashMap<Class<? extends Slot>, Object2BooleanOpenCustomHashMap<ItemStack>>
+      sharedCanInsert = new Reference2ObjectOpenHashMap<>();
+
+  @SuppressWarnings("unchecked")
+  private SlotAccess(SlotRange slotRange, Slot[] slots, PlayerEntity player) {
+    this.slotRange = slotRange;
+    this.slots = slots;
+    this.canTake = slots == null ? null : new byte[slots.length];
+    this.canInsert = slots == null ? null : new Object2BooleanOpenCustomHashMap[slots.length];
+    this.player = player;
+  }
+
+  public static SlotAccess unrestricted(SlotRange slotRange) {
+    return new SlotAccess(slotRange, null, null);
+  }
+
+  public static SlotAccess of(
+      ScreenHandler screenHandler, Inventory inventory, SlotRange slotRange, PlayerEntity player
+  ) {
+    if (screenHandler == null) {
+      return unrestricted(slotRange);
+    }
+
+    SlotTopology topology = SlotTopology.of(screenHandler);
+    Slot[] slots = new Slot[slotRange.size()];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = topology.getSlot(inventory, slotRange.min() + i);
+    }
+
+    return new SlotAccess(slotRange, slots, player);
+  }
+
+  public boolean canTake(int slotIndex) {
+    if (this.slots == null) {
+      return true;
+    }
+
+    int offset = slotIndex - this.slotRange.min();
+    if (this.canTake[offset] == UNKNOWN) {
+      Slot slot = this.slots[offset];
+      this.canTake[offset] = slot != null && slot.canTakeItems(this.player) ? ALLOWED : DENIED;
+    }
+    return this.canTake[offset] == ALLOWED;
+  }
+
+  public boolean canInsert(int slotIndex, ItemStack itemStack) {
+    if (this.slots == null) {
+      return true;
+    }
+
+    int offset = slotIndex - this.slotRange.min();
+    Slot slot = this.slots[offset];
+    if (slot == null) {
+      return false;
+    }
+
+    Object2BooleanOpenCustomHashMap<ItemStack> results;
+    if (STATELESS_SLOT_CLASSES.contains(slot.getClass())) {
+      results = this.sharedCanInsert.computeIfAbsent(slot.getClass(),
+          (key) -> new Object2BooleanOpenCustomHashMap<>(ItemKey.HASH_STRATEGY)
+      );
+    } else {
+      results = this.canInsert[offset];
+      if (results == null) {
+        results = new Object2BooleanOpenCustomHashMap<>(ItemKey.HASH_STRATEGY);
+        this.canInsert[offset] = results;
+      }
+    }
+    if (results.containsKey(itemStack)) {
+      return results.getBoolean(itemStack);
+    }
+
+    boolean result = slot.canInsert(itemStack);
+    results.put(itemStack.copyWithCount(1), result);
+    return result;
+  }
+}
@@ -0,0 +1,194 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import me.roundaround.inventorymanagement.api.SlotTopologyRegistry;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper.SlotRange;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Layout of a screen handler's slots: which inventories back which slots, the range of each inventory the mod
+ * operates on, and which slots are special and should be left alone. The player's armor and offhand are always left
+ * out; horse saddle and armor slots and the result slots of crafting and smelting screens are marked special by
+ * providers in {@link SlotTopologyRegistry}. Built once per handler instance, on first use, and cached for as long as
+ * the handler is alive. Works the same on the client and the server. Handlers whose layout can't be inferred from
+ * their slots can register a {@link SlotTopologyRegistry.Provider}.
+ */
+public final class SlotTopology {
+  private static final Map<ScreenHandler, SlotTopology> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Map<Inventory, Slot[]> slots;
+  private final Map<Inventory, SlotRange> slotRanges;
+  private final Map<Inventory, SlotRange> bulkRanges;
+  private final Inventory playerInventory;
+  private final Inventory containerInventory;
+  private final int playerBulkSlotCount;
+  private final int containerBulkSlotCount;
+
+  private SlotTopology(Builder builder) {
+    this.slots = builder.slots;
+    this.slotRanges = builder.slotRanges;
+    this.bulkRanges = builder.bulkRanges;
+    this.playerInventory = builder.playerInventory;
+    this.containerInventory = builder.containerInventory;
+    this.playerBulkSlotCount = builder.playerBulkSlotCount;
+    this.containerBulkSlotCount = builder.containerBulkSlotCount;
+  }
+
+  public static SlotTopology of(ScreenHandler screenHandler) {
+    return CACHE.computeIfAbsent(screenHandler, SlotTopology::build);
+  }
+
+  private static SlotTopology build(ScreenHandler screenHandler) {
+    Builder builder = new Builder();
+    SlotTopologyRegistry.Provider provider = SlotTopologyRegistry.getProvider(screenHandler.getClass());
+    if (provider != null) {
+      provider.configure(screenHandler, builder);
+    }
+    return builder.build(screenHandler);
+  }
+
+  public Inventory getPlayerInventory() {
+    return this.playerInventory;
+  }
+
+  /**
+   * The inventory of the first non-special slot that isn't backed by the player's inventory, or {@code null} if
+   * there is none.
+   */
+  public Inventory getContainerInventory() {
+    return this.containerInventory;
+  }
+
+  public boolean shows(Inventory inventory) {
+    return this.slots.containsKey(inventory);
+  }
+
+  /**
+   * Returns the slot showing the given inventory index, or {@code null} if the handler doesn't show it.
+   */
+  public Slot getSlot(Inventory inventory, int index) {
+    Slot[] slots = this.slots.get(inventory);
+    return slots == null || index < 0 || index >= slots.length ? null : slots[index];
+  }
+
+  /**
+   * The span of the inventory's indices shown in non-special slots. The player's armor and offhand are never
+   * included. Inventories the handler doesn't show fall back to their full size.
+   */
+  public SlotRange getSlotRange(Inventory inventory) {
+    SlotRange slotRange = this.slotRanges.get(inventory);
+    if (slotRange != null) {
+      return slotRange;
+    }
+    return inventory instanceof PlayerInventory ? new SlotRange(0, PlayerInventory.MAIN_SIZE) :
+        SlotRange.fullRange(inventory);
+  }
+
+  /**
+   * The range that sorting and transferring everything operate on. For the player's inventory this excludes the
+   * hotbar.
+   */
+  public SlotRange getBulkRange(Inventory inventory) {
+    SlotRange slotRange = this.bulkRanges.get(inventory);
+    if (slotRange != null) {
+      return slotRange;
+    }
+    return inventory instanceof PlayerInventory ? SlotRange.playerMainRange() : SlotRange.fullRange(inventory);
+  }
+
+  public int getBulkSlotCount(boolean isPlayerInventory) {
+    return isPlayerInventory ? this.playerBulkSlotCount : this.containerBulkSlotCount;
+  }
+
+  public static final class Builder {
+    private final BitSet special = new BitSet();
+    private final Map<Inventory, Slot[]> slots = new IdentityHashMap<>();
+    private final Map<Inventory, SlotRange> slotRanges = new IdentityHashMap<>();
+    private final Map<Inventory, SlotRange> bulkRanges = new IdentityHashMap<>();
+    private Inventory playerInventory = null;
+    private Inventory containerInventory = null;
+    private int playerBulkSlotCount = 0;
+    private int containerBulkSlotCount = 0;
+
+    private Builder() {
+    }
+
+    /**
+     * Marks the screen handler slot at the given index as special, excluding it from every operation.
+     */
+    public Builder special(int handlerSlotIndex) {
+      this.special.set(handlerSlotIndex);
+      return this;
+    }
+
+    public Builder container(Inventory inventory) {
+      this.containerInventory = inventory;
+      return this;
+    }
+
+    public Builder bulkRange(Inventory inventory, SlotRange slotRange) {
+      this.bulkRanges.put(inventory, slotRange);
+      return this;
+    }
+
+    private SlotTopology build(ScreenHandler screenHandler) {
+      Map<Inventory, int[]> spans = new IdentityHashMap<>();
+      Inventory firstContainer = null;
+
+      for (int handlerSlotIndex = 0; handlerSlotIndex < screenHandler.slots.size(); handlerSlotIndex++) {
+        Slot slot = screenHandler.getSlot(handlerSlotIndex);
+        Inventory inventory = slot.inventory;
+        int index = slot.getIndex();
+        boolean isPlayerInventory = inventory instanceof PlayerInventory;
+
+        if (isPlayerInventory && this.playerInventory == null) {
+          this.playerInventory = inventory;
+        }
+
+        Slot[] inventorySlots = this.slots.computeIfAbsent(inventory, (key) -> new Slot[key.size()]);
+        if (index >= 0 && index < inventorySlots.length) {
+          inventorySlots[index] = slot;
+        }
+
+        if (this.special.get(handlerSlotIndex) || isPlayerInventory && index >= PlayerInventory.MAIN_SIZE) {
+          continue;
+        }
+
+        if (isPlayerInventory) {
+          this.playerBulkSlotCount++;
+        } else {
+          this.containerBulkSlotCount++;
+          if (firstContainer == null) {
+            firstContainer = inventory;
+          }
+        }
+
+        int[] span = spans.computeIfAbsent(inventory, (key) -> new int[]{index, index + 1});
+        span[0] = Math.min(span[0], index);
+        span[1] = Math.max(span[1], index + 1);
+      }
+
+      if (this.containerInventory == null) {
+        this.containerInventory = firstContainer;
+      }
+
+      spans.forEach((inventory, span) -> {
+        SlotRange slotRange = new SlotRange(span[0], span[1]);
+        this.slotRanges.put(inventory, slotRange);
+        if (!(inventory instanceof PlayerInventory)) {
+          this.bulkRanges.putIfAbsent(inventory, slotRange);
+        }
+      });
+
+      return new SlotTopology(this);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import me.roundaround.inventorymanagement.inventory.sorting.SortHistory;
+import me.roundaround.inventorymanagement.mixin.ScreenHandlerAccessor;
+import me.roundaround.inventorymanagement.network.Networking;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.listener.ClientPlayPacketListener;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.BundleS2CPacket;
+import net.minecraft.network.packet.s2c.play.ScreenHandlerSlotUpdateS2CPacket;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.collection.DefaultedList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Suppresses per-slot syncing on every screen handler that shows one of the given inventories while an operation runs,
+ * then sends each viewer a single bundle with the slots that actually changed. Viewers that have this mod get a single
+ * {@link Networking.OperationResultS2C} instead, which sends stacks that only moved between slots as slot references.
+ * Use with try-with-resources on the server thread. Handlers already suppressed by an enclosing scope are left to that
+ * scope.
+ */
+public final class SyncScope implements AutoCloseable {
+  private static final int RESULT_PAYLOAD_MIN_SLOTS = 2;
+
+  private static final Set<ScreenHandler> SUPPRESSED = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private final List<ServerPlayerEntity> players = new ArrayList<>();
+  private final List<ScreenHandler> handlers = new ArrayList<>();
+
+  private SyncScope() {
+  }
+
+  public static SyncScope open(MinecraftServer server, Inventory... inventories) {
+    SyncScope scope = new SyncScope();
+    if (server == null) {
+      return scope;
+    }
+
+    for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+      scope.suppress(player, player.playerScreenHandler, inventories);
+      if (player.currentScreenHandler != player.playerScreenHandler) {
+        scope.suppress(player, player.currentScreenHandler, inventories);
+      }
+    }
+    return scope;
+  }
+
+  private void suppress(ServerPlayerEntity player, ScreenHandler handler, Inventory[] inventories) {
+    if (handler == null || SUPPRESSED.contains(handler) || !shows(handler, inventories)) {
+      return;
+    }
+    handler.disableSyncing();
+    SUPPRESSED.add(handler);
+    this.players.add(player);
+    this.handlers.add(handler);
+  }
+
+  @Override
+  public void close() {
+    for (int i = 0; i < this.handlers.size(); i++) {
+      ScreenHandler handler = this.handlers.get(i);
+      SUPPRESSED.remove(handler);
+      handler.enableSyncing();
+      flush(this.players.get(i), handler);
+    }
+  }
+
+  private static void flush(ServerPlayerEntity player, ScreenHandler handler) {
+    DefaultedList<ItemStack> previousTrackedStacks = ((ScreenHandlerAccessor) handler).getPreviousTrackedStacks();
+    IntArrayList changed = new IntArrayList();
+    for (int slotIndex = 0; slotIndex < handler.slots.size(); slotIndex++) {
+      if (!ItemStack.areEqual(previousTrackedStacks.get(slotIndex), handler.getSlot(slotIndex).getStack())) {
+        changed.add(slotIndex);
+      }
+    }
+
+    if (changed.isEmpty()) {
+      return;
+    }
+
+    if (changed.size() >= RESULT_PAYLOAD_MIN_SLOTS &&
+        ServerPlayNetworking.canSend(player, Networking.OperationResultS2C.ID)) {
+      ServerPlayNetworking.send(player, diff(handler, previousTrackedStacks, changed));
+      for (int i = 0; i < changed.size(); i++) {
+        int slotIndex = changed.getInt(i);
+        handler.setPreviousTrackedSlot(slotIndex, handler.getSlot(slotIndex).getStack());
+      }
+      return;
+    }
+
+    List<Packet<? super ClientPlayPacketListener>> packets = new ArrayList<>();
+    for (int i = 0; i < changed.size(); i++) {
+      int slotIndex = changed.getInt(i);
+      ItemStack itemStack = handler.getSlot(slotIndex).getStack();
+      handler.setPreviousTrackedSlot(slotIndex, itemStack);
+      packets.add(new ScreenHandlerSlotUpdateS2CPacket(handler.syncId, handler.nextRevision(), slotIndex,
+          itemStack.copy()
+      ));
+    }
+    player.networkHandler.sendPacket(packets.size() == 1 ? packets.get(0) : new BundleS2CPacket(packets));
+  }
+
+  /**
+   * Describes the changed slots relative to what the client last saw: a changed slot whose new stack some slot held
+   * before becomes a move from that slot, and only the rest carry their stack.
+   */
+  private static Networking.OperationResultS2C diff(
+      ScreenHandler handler, DefaultedList<ItemStack> previousTrackedStacks, IntArrayList changed
+  ) {
+    Long2IntOpenHashMap sources = new Long2IntOpenHashMap();
+    sources.defaultReturnValue(-1);
+    for (int slotIndex = 0; slotIndex < previousTrackedStacks.size(); slotIndex++) {
+      ItemStack itemStack = previousTrackedStacks.get(slotIndex);
+      if (!itemStack.isEmpty()) {
+        sources.putIfAbsent(SortHistory.slotHash(itemStack), slotIndex);
+      }
+    }
+
+    IntArrayList moveSlots = new IntArrayList();
+    IntArrayList moveSources = new IntArrayList();
+    IntArrayList contentSlots = new IntArrayList();
+    List<ItemStack> contents = new ArrayList<>();
+    for (int i = 0; i < changed.size(); i++) {
+      int slotIndex = changed.getInt(i);
+      ItemStack itemStack = handler.getSlot(slotIndex).getStack();
+      int source = itemStack.isEmpty() ? -1 : sources.get(SortHistory.slotHash(itemStack));
+      if (source != -1 && ItemStack.areEqual(previousTrackedStacks.get(source), itemStack)) {
+        moveSlots.add(slotIndex);
+        moveSources.add(source);
+      } else {
+        contentSlots.add(slotIndex);
+        contents.add(itemStack.copy());
+      }
+    }
+
+    return new Networking.OperationResultS2C(handler.syncId, handler.nextRevision(), moveSlots.toIntArray(),
+        moveSources.toIntArray(), contentSlots.toIntArray(), contents
+    );
+  }
+
+  private static boolean shows(ScreenHandler handler, Inventory[] inventories) {
+    SlotTopology topology = SlotTopology.of(handler);
+    for (Inventory inventory : inventories) {
+      if (topology.shows(inventory)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,119 @@
+package me.roundaround.inventorymanagement.inventory;
+
+import me.roundaround.inventorymanagement.inventory.InventoryHelper.SlotRange;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Index over the target range of a transfer. Slots holding a stack with room left are grouped by item key id, each
+ * group kept as a list in slot order, and empty slots are tracked in a bitset. Routing a source stack then only visits
+ * slots it can actually go into. Slot indices passed to and returned from the index are absolute, and key ids come
+ * from the {@link ItemKeyTable} shared by both sides of the transfer.
+ */
+public final class TransferIndex {
+  private final SlotRange slotRange;
+  private final int[] heads;
+  private final int[] tails;
+  private final int[] next;
+  private final int[] prev;
+  private final int[] groupOf;
+  private final BitSet free;
+
+  private TransferIndex(SlotRange slotRange, int keyCount) {
+    int size = slotRange.size();
+    this.slotRange = slotRange;
+    this.heads = new int[keyCount];
+    this.tails = new int[keyCount];
+    this.next = new int[size];
+    this.prev = new int[size];
+    this.groupOf = new int[size];
+    this.free = new BitSet(size);
+    Arrays.fill(this.heads, -1);
+    Arrays.fill(this.tails, -1);
+    Arrays.fill(this.groupOf, -1);
+  }
+
+  /**
+   * Indexes the snapshot's range. Ids interned into the snapshot's table after this call can't be looked up.
+   */
+  public static TransferIndex of(InventorySnapshot snapshot) {
+    TransferIndex index = new TransferIndex(snapshot.getSlotRange(), snapshot.getTable().size());
+    for (int i = 0; i < snapshot.size(); i++) {
+      index.fill(snapshot.getSlotRange().min() + i, snapshot.getKey(i), snapshot.getCount(i),
+          snapshot.getMaxCount(i)
+      );
+    }
+    return index;
+  }
+
+  /**
+   * Returns the first slot holding a stack with the given key id that can still be added to, or {@code -1}.
+   */
+  public int firstPartial(int key) {
+    return key < 0 || key >= this.heads.length || this.heads[key] == -1 ? -1 : this.heads[key] + this.slotRange.min();
+  }
+
+  public int nextPartial(int slotIndex) {
+    int next = this.next[slotIndex - this.slotRange.min()];
+    return next == -1 ? -1 : next + this.slotRange.min();
+  }
+
+  public int firstFree() {
+    return this.nextFree(this.slotRange.min() - 1);
+  }
+
+  public int nextFree(int slotIndex) {
+    int next = this.free.nextSetBit(slotIndex - this.slotRange.min() + 1);
+    return next == -1 ? -1 : next + this.slotRange.min();
+  }
+
+  /**
+   * Records that the slot now holds {@code count} of the item with the given key id, updating which slots are free and
+   * which can still be added to.
+   */
+  public void fill(int slotIndex, int key, int count, int maxCount) {
+    int offset = slotIndex - this.slotRange.min();
+    boolean empty = key == -1 || count <= 0;
+    this.free.set(offset, empty);
+
+    int group = !empty && maxCount > 1 && count < maxCount ? key : -1;
+
+    if (this.groupOf[offset] == group) {
+      return;
+    }
+    if (this.groupOf[offset] != -1) {
+      this.unlink(offset);
+    }
+    if (group != -1) {
+      this.link(group, offset);
+    }
+  }
+
+  private void link(int group, int offset) {
+    this.groupOf[offset] = group;
+    this.next[offset] = -1;
+    this.prev[offset] = this.tails[group];
+    if (this.tails[group] == -1) {
+      this.heads[group] = offset;
+    } else {
+      this.next[this.tails[group]] = offset;
+    }
+    this.tails[group] = offset;
+  }
+
+  private void unlink(int offset) {
+    int group = this.groupOf[offset];
+    if (this.prev[offset] == -1) {
+      this.heads[group] = this.next[offset];
+    } else {
+      this.next[this.prev[offset]] = this.next[offset];
+    }
+    if (this.next[offset] == -1) {
+      this.tails[group] = this.prev[offset];
+    } else {
+      this.prev[this.next[offset]] = this.prev[offset];
+    }
+    this.groupOf[offset] = -1;
+  }
+}
@@ -0,0 +1,121 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper.SlotRange;
+import me.roundaround.inventorymanagement.inventory.InventoryPlan;
+import me.roundaround.inventorymanagement.inventory.InventoryPlanCommitter;
+import me.roundaround.inventorymanagement.inventory.InventoryPlanner;
+import me.roundaround.inventorymanagement.inventory.InventorySnapshot;
+import me.roundaround.inventorymanagement.inventory.SyncScope;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Sorts very large slot ranges without blocking the server thread. The range is captured in an
+ * {@link InventorySnapshot}, the merged and sorted contents are planned on a dedicated fork-join pool, and the plan is
+ * written back on the server thread in a later tick. If the inventory changed while the plan was being computed, it is
+ * re-planned from a fresh snapshot, and after a few failed attempts sorted synchronously instead.
+ */
+public final class AsyncSorter {
+  private static final int ASYNC_THRESHOLD = 1024;
+  private static final int MAX_ATTEMPTS = 3;
+
+  private static final ForkJoinPool POOL =
+      new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), (pool) -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("InventoryManagement-Sort-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+      }, null, false);
+
+  private static final Set<Inventory> IN_FLIGHT = Collections.synchronizedSet(
+      Collections.newSetFromMap(new WeakHashMap<>()));
+
+  private AsyncSorter() {
+  }
+
+  public static boolean shouldSortAsync(SlotRange slotRange) {
+    return slotRange.size() >= ASYNC_THRESHOLD;
+  }
+
+  /**
+   * Starts sorting the range in the background. Must be called on the server thread. Requests for an inventory that
+   * already has a sort in flight are dropped, since that sort will produce the same result.
+   */
+  public static void sort(MinecraftServer server, Inventory inventory, SlotRange slotRange, SortStrategy strategy) {
+    InventorySnapshot snapshot = InventorySnapshot.of(inventory, slotRange);
+    SortHistory.Entry previous = SortHistory.get(inventory, slotRange, strategy);
+    if (snapshot.isUnchangedSince(previous)) {
+      return;
+    }
+    if (!IN_FLIGHT.add(inventory)) {
+      return;
+    }
+    schedule(server, inventory, snapshot, strategy, previous, 1);
+  }
+
+  private static void schedule(
+      MinecraftServer server,
+      Inventory inventory,
+      InventorySnapshot snapshot,
+      SortStrategy strategy,
+      SortHistory.Entry previous,
+      int attempt
+  ) {
+    CompletableFuture.supplyAsync(() -> InventoryPlanner.planSort(snapshot, strategy, previous, true), POOL)
+        .thenAcceptAsync((plan) -> commit(server, inventory, strategy, plan, attempt), server)
+        .exceptionally((throwable) -> {
+          IN_FLIGHT.remove(inventory);
+          InventoryManagementMod.LOGGER.error("Failed to sort inventory in the background", throwable);
+          return null;
+        });
+  }
+
+  private static void commit(
+      MinecraftServer server, Inventory inventory, SortStrategy strategy, InventoryPlan plan, int attempt
+  ) {
+    SlotRange slotRange = plan.getTarget().getSlotRange();
+
+    if (!InventoryPlanCommitter.isCurrent(plan, null, inventory)) {
+      if (attempt < MAX_ATTEMPTS) {
+        schedule(server, inventory, InventorySnapshot.of(inventory, slotRange), strategy,
+            SortHistory.get(inventory, slotRange, strategy), attempt + 1
+        );
+        return;
+      }
+
+      IN_FLIGHT.remove(inventory);
+      InventoryManagementMod.LOGGER.debug("Inventory kept changing during background sort, sorting synchronously");
+      try (SyncScope ignored = SyncScope.open(server, inventory)) {
+        InventoryHelper.sortInventory(inventory, slotRange, strategy);
+      }
+      return;
+    }
+
+    IN_FLIGHT.remove(inventory);
+    int writes;
+    try (SyncScope ignored = SyncScope.open(server, inventory)) {
+      writes = InventoryPlanCommitter.commit(plan, null, inventory);
+    }
+    if (writes < 0) {
+      InventoryManagementMod.LOGGER.warn("Rolled back background sort of {} slots", slotRange.size());
+      return;
+    }
+    SortHistory.record(inventory, strategy, plan.getTarget().withMoves(plan, InventoryPlan.TARGET));
+
+    if (InventoryManagementMod.LOGGER.isDebugEnabled()) {
+      InventoryManagementMod.LOGGER.debug("Sorted {} slots in the background after {} attempt(s) with {} writes",
+          slotRange.size(), attempt, writes
+      );
+    }
+  }
+}
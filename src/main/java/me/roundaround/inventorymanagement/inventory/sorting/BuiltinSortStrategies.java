@@ -0,0 +1,63 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.item.*;
+import net.minecraft.util.Identifier;
+
+public final class BuiltinSortStrategies {
+  private static final int CATEGORY_BLOCKS = 0;
+  private static final int CATEGORY_TOOLS = 1;
+  private static final int CATEGORY_COMBAT = 2;
+  private static final int CATEGORY_FOOD = 3;
+  private static final int CATEGORY_OTHER = 4;
+
+  public static final SortStrategy NAME = SortStrategy.builder(id("name"))
+      .byString(SortKey::getBaseName)
+      .byIntDescending(SortKey::getCountOrDurability)
+      .build();
+
+  public static final SortStrategy REGISTRY = SortStrategy.builder(id("registry"))
+      .byInt(SortKey::getItemRank)
+      .byIntDescending(SortKey::getCountOrDurability)
+      .build();
+
+  public static final SortStrategy COUNT = SortStrategy.builder(id("count"))
+      .byIntDescending(SortKey::getCount)
+      .byString(SortKey::getBaseName)
+      .byIntDescending(SortKey::getCountOrDurability)
+      .build();
+
+  public static final SortStrategy CATEGORY = SortStrategy.builder(id("category"))
+      .byInt((key) -> getCategory(key.getItemStack()))
+      .byString(SortKey::getBaseName)
+      .byIntDescending(SortKey::getCountOrDurability)
+      .build();
+
+  private BuiltinSortStrategies() {
+  }
+
+  private static Identifier id(String path) {
+    return new Identifier(InventoryManagementMod.MOD_ID, path);
+  }
+
+  private static int getCategory(ItemStack itemStack) {
+    Item item = itemStack.getItem();
+    if (item instanceof BlockItem) {
+      return CATEGORY_BLOCKS;
+    }
+    if (item instanceof MiningToolItem || item instanceof ShearsItem || item instanceof FlintAndSteelItem ||
+        item instanceof FishingRodItem) {
+      return CATEGORY_TOOLS;
+    }
+    if (item instanceof SwordItem || item instanceof RangedWeaponItem || item instanceof TridentItem ||
+        item instanceof ArmorItem || item instanceof ShieldItem) {
+      return CATEGORY_COMBAT;
+    }
+    if (itemStack.contains(DataComponentTypes.FOOD)) {
+      return CATEGORY_FOOD;
+    }
+    return CATEGORY_OTHER;
+  }
+}
@@ -0,0 +1,159 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.DynamicOps;
+import net.minecraft.component.DataComponentType;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryOps;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A deterministic, comparable summary of an item stack's item and component changes. Components are ordered by their
+ * raw registry id. For the same component, a removal sorts before any value, and values are ordered by their
+ * codec-encoded SNBT. Encoding uses the running server's registries, so values referring to registry entries encode
+ * like they are saved. Values that can't be encoded, and values that encode the same but aren't equal, are ordered by
+ * their string form if their class defines one, and their class name otherwise, never by anything that varies between
+ * runs. Values' hashes are only used to skip the encoding when two values are equal. This gives a total order over
+ * stacks without building any tooltip text, and one that does not change between restarts.
+ * <p>
+ * Encodings are built on first use and cached; fingerprints are shared between sorts, so two threads may both build
+ * the same encoding, which is harmless.
+ */
+public final class ComponentFingerprint implements Comparable<ComponentFingerprint> {
+  private static volatile DynamicOps<NbtElement> ops = NbtOps.INSTANCE;
+
+  private final int itemId;
+  private final DataComponentType<?>[] types;
+  private final int[] typeIds;
+  private final int[] valueHashes;
+  private final Object[] values;
+  private final String[] encodings;
+
+  private ComponentFingerprint(
+      int itemId, DataComponentType<?>[] types, int[] typeIds, int[] valueHashes, Object[] values
+  ) {
+    this.itemId = itemId;
+    this.types = types;
+    this.typeIds = typeIds;
+    this.valueHashes = valueHashes;
+    this.values = values;
+    this.encodings = new String[values.length];
+  }
+
+  public static ComponentFingerprint of(ItemStack itemStack) {
+    int itemId = Registries.ITEM.getRawId(itemStack.getItem());
+
+    @SuppressWarnings("unchecked") Map.Entry<DataComponentType<?>, Optional<?>>[] entries =
+        itemStack.getComponentChanges().entrySet().toArray(Map.Entry[]::new);
+    Arrays.sort(entries, (a, b) -> Integer.compare(getTypeId(a.getKey()), getTypeId(b.getKey())));
+
+    DataComponentType<?>[] types = new DataComponentType<?>[entries.length];
+    int[] typeIds = new int[entries.length];
+    int[] valueHashes = new int[entries.length];
+    Object[] values = new Object[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      Object value = entries[i].getValue().orElse(null);
+      types[i] = entries[i].getKey();
+      typeIds[i] = getTypeId(types[i]);
+      valueHashes[i] = value == null ? 0 : value.hashCode();
+      values[i] = value;
+    }
+
+    return new ComponentFingerprint(itemId, types, typeIds, valueHashes, values);
+  }
+
+  /**
+   * Encodes values with the server's registries from now on, or without any registries if {@code server} is
+   * {@code null}. Called when the server starts and stops.
+   */
+  public static void useRegistries(MinecraftServer server) {
+    ops = server == null ? NbtOps.INSTANCE : RegistryOps.of(NbtOps.INSTANCE, server.getRegistryManager());
+    SortKeyCache.getInstance().invalidate();
+  }
+
+  private static int getTypeId(DataComponentType<?> type) {
+    return Registries.DATA_COMPONENT_TYPE.getRawId(type);
+  }
+
+  @Override
+  public int compareTo(ComponentFingerprint other) {
+    int result = Integer.compare(this.itemId, other.itemId);
+    if (result != 0) {
+      return result;
+    }
+
+    int length = Math.min(this.typeIds.length, other.typeIds.length);
+    for (int i = 0; i < length; i++) {
+      result = Integer.compare(this.typeIds[i], other.typeIds[i]);
+      if (result != 0) {
+        return result;
+      }
+      result = this.compareValue(other, i);
+      if (result != 0) {
+        return result;
+      }
+    }
+
+    return Integer.compare(this.typeIds.length, other.typeIds.length);
+  }
+
+  private int compareValue(ComponentFingerprint other, int index) {
+    Object value = this.values[index];
+    Object otherValue = other.values[index];
+    if (value == null || otherValue == null) {
+      return value == null ? (otherValue == null ? 0 : -1) : 1;
+    }
+    if (this.valueHashes[index] == other.valueHashes[index] && value.equals(otherValue)) {
+      return 0;
+    }
+
+    int result = this.getEncoding(index).compareTo(other.getEncoding(index));
+    if (result != 0) {
+      return result;
+    }
+
+    // Unequal values that save identically; their descriptions are the last stable thing to tell them apart by.
+    return describe(value).compareTo(describe(otherValue));
+  }
+
+  private String getEncoding(int index) {
+    String encoding = this.encodings[index];
+    if (encoding == null) {
+      encoding = encode(this.types[index], this.values[index]);
+      this.encodings[index] = encoding;
+    }
+    return encoding;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String encode(DataComponentType<?> type, Object value) {
+    Codec<Object> codec = (Codec<Object>) type.getCodec();
+    if (codec != null) {
+      Optional<NbtElement> encoded = codec.encodeStart(ops, value).result();
+      if (encoded.isPresent()) {
+        return encoded.get().asString();
+      }
+    }
+    return describe(value);
+  }
+
+  /**
+   * The value's string form, unless that would be {@link Object#toString}, which includes the identity hash.
+   */
+  private static String describe(Object value) {
+    try {
+      if (value.getClass().getMethod("toString").getDeclaringClass() != Object.class) {
+        return value.toString();
+      }
+    } catch (NoSuchMethodException ignored) {
+    }
+    return value.getClass().getName();
+  }
+}
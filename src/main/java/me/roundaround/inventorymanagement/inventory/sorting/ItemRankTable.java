@@ -0,0 +1,42 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.resource.featuretoggle.FeatureSet;
+import net.minecraft.server.MinecraftServer;
+
+/**
+ * Locale-independent {@code Item -> rank} table used to sort by registry order with a single int compare. Items are
+ * ranked by raw registry id, with items whose features are disabled on the server pushed to the end. The table is
+ * rebuilt when the server starts and after every data pack reload, since enabled features can change with either.
+ */
+public final class ItemRankTable {
+  private static volatile Reference2IntOpenHashMap<Item> ranks = build(null);
+
+  private ItemRankTable() {
+  }
+
+  public static int getRank(Item item) {
+    Reference2IntOpenHashMap<Item> ranks = ItemRankTable.ranks;
+    return ranks.containsKey(item) ? ranks.getInt(item) : Registries.ITEM.getRawId(item);
+  }
+
+  public static void rebuild(MinecraftServer server) {
+    ranks = build(server.getSaveProperties().getEnabledFeatures());
+    SortKeyCache.getInstance().invalidate();
+  }
+
+  private static Reference2IntOpenHashMap<Item> build(FeatureSet enabledFeatures) {
+    Reference2IntOpenHashMap<Item> table = new Reference2IntOpenHashMap<>(Registries.ITEM.size());
+    int disabledOffset = Registries.ITEM.size();
+    for (Item item : Registries.ITEM) {
+      int rank = Registries.ITEM.getRawId(item);
+      if (enabledFeatures != null && !item.isEnabled(enabledFeatures)) {
+        rank += disabledOffset;
+      }
+      table.put(item, rank);
+    }
+    return table;
+  }
+}
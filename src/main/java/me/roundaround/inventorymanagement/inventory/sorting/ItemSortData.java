@@ -0,0 +1,44 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import net.minecraft.item.ItemStack;
+
+/**
+ * The count-independent sort keys for an item and its components. Instances are shared between threads through
+ * {@link SortKeyCache}, so the lazily built fingerprint is published through a volatile field.
+ */
+public final class ItemSortData {
+  private final ItemStack prototype;
+  private final String baseName;
+  private final int itemRank;
+  private final int durability;
+
+  private volatile ComponentFingerprint fingerprint = null;
+
+  ItemSortData(ItemStack prototype) {
+    this.prototype = prototype;
+    this.baseName = prototype.getName().getString();
+    this.itemRank = ItemRankTable.getRank(prototype.getItem());
+    this.durability = prototype.getMaxDamage() - prototype.getDamage();
+  }
+
+  public String getBaseName() {
+    return this.baseName;
+  }
+
+  public int getItemRank() {
+    return this.itemRank;
+  }
+
+  public int getDurability() {
+    return this.durability;
+  }
+
+  public ComponentFingerprint getFingerprint() {
+    ComponentFingerprint fingerprint = this.fingerprint;
+    if (fingerprint == null) {
+      fingerprint = ComponentFingerprint.of(this.prototype);
+      this.fingerprint = fingerprint;
+    }
+    return fingerprint;
+  }
+}
@@ -0,0 +1,248 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import me.roundaround.inventorymanagement.api.SortStrategy;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorts {@link SortKey}s according to a {@link SortStrategy} by compiling the strategy's keys
+ * into ints and packing as many leading keys as fit into a single {@code long} per stack. String keys are reduced to
+ * ranks among the distinct values being sorted and descending keys are inverted, so that a plain ascending sort of the
+ * primitive array matches the strategy. Only runs of entries that are still tied after the packed keys are handed to
+ * the strategy's comparator. All working memory comes from {@link SortScratch}.
+ */
+public final class PackedKeySorter {
+  private static final int INDEX_BITS = 16;
+  private static final int KEY_BITS = 63 - INDEX_BITS;
+  private static final int RADIX_BITS = 8;
+  private static final int RADIX_THRESHOLD = 4096;
+
+  private static final int MAX_ENTRIES = 1 << INDEX_BITS;
+  private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+  private PackedKeySorter() {
+  }
+
+  public static void sort(
+      SortKey[] keys, int size, SortStrategy strategy, SortScratch scratch
+  ) {
+    sort(keys, size, strategy, scratch, false);
+  }
+
+  /**
+   * Like {@link #sort(SortKey[], int, SortStrategy, SortScratch)}, but with {@code parallel} set
+   * large inputs are sorted with fork-join parallel sorts. When called from a fork-join worker, the work stays in that
+   * worker's pool.
+   */
+  public static void sort(
+      SortKey[] keys, int size, SortStrategy strategy, SortScratch scratch, boolean parallel
+  ) {
+    int columnCount = strategy.getKeys().size();
+    int[] compiled = compile(keys, size, strategy, scratch);
+
+    if (size < 2) {
+      return;
+    }
+
+    Comparator<SortKey> tieBreaker = strategy.getTieBreaker();
+    if (size > MAX_ENTRIES) {
+      if (parallel) {
+        Arrays.parallelSort(keys, 0, size, tieBreaker);
+      } else {
+        Arrays.sort(keys, 0, size, tieBreaker);
+      }
+      return;
+    }
+
+    long[] mins = scratch.columnMins(columnCount);
+    int[] widths = scratch.columnWidths(columnCount);
+    int packedColumns = 0;
+    int usedBits = 0;
+    for (int column = 0; column < columnCount; column++) {
+      long min = Long.MAX_VALUE;
+      long max = Long.MIN_VALUE;
+      for (int i = 0; i < size; i++) {
+        int value = compiled[i * columnCount + column];
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+
+      int width = 64 - Long.numberOfLeadingZeros(max - min);
+      if (usedBits + width > KEY_BITS) {
+        break;
+      }
+      mins[column] = min;
+      widths[column] = width;
+      usedBits += width;
+      packedColumns++;
+    }
+
+    long[] packed = scratch.packed(size);
+    for (int i = 0; i < size; i++) {
+      long value = 0;
+      for (int column = 0; column < packedColumns; column++) {
+        value = (value << widths[column]) | (compiled[i * columnCount + column] - mins[column]);
+      }
+      packed[i] = (value << INDEX_BITS) | i;
+    }
+
+    if (parallel && size > RADIX_THRESHOLD) {
+      Arrays.parallelSort(packed, 0, size);
+    } else if (size > RADIX_THRESHOLD) {
+      radixSort(packed, size, usedBits + INDEX_BITS, scratch.packedBuffer(size), scratch.radixCounts());
+    } else {
+      Arrays.sort(packed, 0, size);
+    }
+
+    SortKey[] sorted = scratch.sortedKeys(size);
+    for (int i = 0; i < size; i++) {
+      sorted[i] = keys[(int) (packed[i] & INDEX_MASK)];
+    }
+
+    int runStart = 0;
+    for (int i = 1; i <= size; i++) {
+      if (i < size && (packed[i] >>> INDEX_BITS) == (packed[runStart] >>> INDEX_BITS)) {
+        continue;
+      }
+      if (i - runStart > 1) {
+        Arrays.sort(sorted, runStart, i, tieBreaker);
+      }
+      runStart = i;
+    }
+
+    System.arraycopy(sorted, 0, keys, 0, size);
+  }
+
+  /**
+   * Re-sorts keys of which only those not flagged {@code clean} may be out of place. Clean keys must already be in
+   * order relative to each other, as is the case for stacks left untouched since the range was last sorted. The dirty
+   * keys are sorted on their own and merged into the clean run, which is linear in {@code size} apart from sorting the
+   * dirty keys.
+   */
+  public static void sortIncremental(
+      SortKey[] keys, int size, boolean[] clean, SortStrategy strategy, SortScratch scratch
+  ) {
+    compile(keys, size, strategy, scratch);
+
+    SortKey[] dirty = scratch.dirtyKeys(size);
+    int cleanCount = 0;
+    int dirtyCount = 0;
+    for (int i = 0; i < size; i++) {
+      if (clean[i]) {
+        keys[cleanCount++] = keys[i];
+      } else {
+        dirty[dirtyCount++] = keys[i];
+      }
+    }
+
+    Comparator<SortKey> tieBreaker = strategy.getTieBreaker();
+    Arrays.sort(dirty, 0, dirtyCount, tieBreaker);
+
+    SortKey[] sorted = scratch.sortedKeys(size);
+    int cleanIdx = 0;
+    int dirtyIdx = 0;
+    for (int i = 0; i < size; i++) {
+      if (dirtyIdx == dirtyCount ||
+          cleanIdx < cleanCount && tieBreaker.compare(keys[cleanIdx], dirty[dirtyIdx]) <= 0) {
+        sorted[i] = keys[cleanIdx++];
+      } else {
+        sorted[i] = dirty[dirtyIdx++];
+      }
+    }
+
+    System.arraycopy(sorted, 0, keys, 0, size);
+  }
+
+  private static int[] compile(
+      SortKey[] keys, int size, SortStrategy strategy, SortScratch scratch
+  ) {
+    List<SortStrategy.Key> strategyKeys = strategy.getKeys();
+    int columnCount = strategyKeys.size();
+
+    int[] compiled = scratch.compiledKeys(size * columnCount);
+    for (int column = 0; column < columnCount; column++) {
+      compileColumn(keys, size, strategyKeys.get(column), compiled, columnCount, column, scratch);
+    }
+    for (int i = 0; i < size; i++) {
+      keys[i].setCompiledKeys(compiled, i * columnCount);
+    }
+    return compiled;
+  }
+
+  private static void compileColumn(
+      SortKey[] keys,
+      int size,
+      SortStrategy.Key strategyKey,
+      int[] compiled,
+      int columnCount,
+      int column,
+      SortScratch scratch
+  ) {
+    if (!strategyKey.isString()) {
+      for (int i = 0; i < size; i++) {
+        int value = strategyKey.extractInt(keys[i]);
+        compiled[i * columnCount + column] = strategyKey.isDescending() ? ~value : value;
+      }
+      return;
+    }
+
+    String[] values = scratch.stringValues(size);
+    String[] distinct = scratch.distinctStrings(size);
+    Object2IntOpenHashMap<String> ranks = scratch.stringRanks();
+    ranks.clear();
+
+    int distinctCount = 0;
+    for (int i = 0; i < size; i++) {
+      values[i] = strategyKey.extractString(keys[i]);
+      if (ranks.putIfAbsent(values[i], 0) == ranks.defaultReturnValue()) {
+        distinct[distinctCount++] = values[i];
+      }
+    }
+
+    Arrays.sort(distinct, 0, distinctCount);
+    for (int i = 0; i < distinctCount; i++) {
+      ranks.put(distinct[i], i);
+    }
+
+    for (int i = 0; i < size; i++) {
+      int rank = ranks.getInt(values[i]);
+      compiled[i * columnCount + column] = strategyKey.isDescending() ? ~rank : rank;
+    }
+  }
+
+  /**
+   * LSD radix sort of non-negative longs, only running passes over the low {@code bits} bits that can be set.
+   */
+  private static void radixSort(long[] values, int size, int bits, long[] buffer, int[] counts) {
+    long[] source = values;
+    long[] target = buffer;
+
+    for (int shift = 0; shift < bits; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < size; i++) {
+        counts[(int) ((source[i] >>> shift) & ((1 << RADIX_BITS) - 1))]++;
+      }
+      int total = 0;
+      for (int digit = 0; digit < counts.length; digit++) {
+        int count = counts[digit];
+        counts[digit] = total;
+        total += count;
+      }
+      for (int i = 0; i < size; i++) {
+        long value = source[i];
+        target[counts[(int) ((value >>> shift) & ((1 << RADIX_BITS) - 1))]++] = value;
+      }
+
+      long[] swap = source;
+      source = target;
+      target = swap;
+    }
+
+    if (source != values) {
+      System.arraycopy(source, 0, values, 0, size);
+    }
+  }
+}
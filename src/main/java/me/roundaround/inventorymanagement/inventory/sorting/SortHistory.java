@@ -0,0 +1,117 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import me.roundaround.inventorymanagement.inventory.InventoryHelper.SlotRange;
+import me.roundaround.inventorymanagement.inventory.InventorySnapshot;
+import me.roundaround.inventorymanagement.inventory.ItemKey;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the contents of the last range sorted in each inventory as an {@link InventorySnapshot}. A later sort of
+ * the same range with the same strategy can then be skipped outright when nothing changed, or narrowed down to the
+ * handful of slots that did. Inventories are held weakly, and entries are ignored once
+ * {@link SortKeyCache} has been invalidated since the sort data they were ordered by may have changed.
+ */
+public final class SortHistory {
+  private static final Map<Inventory, Entry> ENTRIES = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private SortHistory() {
+  }
+
+  /**
+   * Fills {@code slotHashes} with the hash of each slot in the range, relative to its start, and returns the digest of
+   * the whole range.
+   */
+  public static long digest(Inventory inventory, SlotRange slotRange, long[] slotHashes) {
+    for (int i = 0; i < slotRange.size(); i++) {
+      slotHashes[i] = slotHash(inventory.getStack(slotRange.min() + i));
+    }
+    return digest(slotHashes, slotRange.size());
+  }
+
+  /**
+   * Returns the digest of a range whose first {@code size} slot hashes have already been computed.
+   */
+  public static long digest(long[] slotHashes, int size) {
+    long digest = size;
+    for (int i = 0; i < size; i++) {
+      digest = digest * 31 + slotHashes[i];
+    }
+    return HashCommon.mix(digest);
+  }
+
+  public static long slotHash(ItemStack itemStack) {
+    if (itemStack.isEmpty()) {
+      return 0;
+    }
+    return slotHash(ItemKey.hash(itemStack), itemStack.getCount());
+  }
+
+  /**
+   * Same as {@link #slotHash(ItemStack)} for a stack with the given {@link ItemKey#hash} and count.
+   */
+  public static long slotHash(int itemHash, int count) {
+    return count <= 0 ? 0 : HashCommon.mix(((long) itemHash << 32) | count);
+  }
+
+  /**
+   * Returns what was recorded for the last sort of exactly this range with this strategy, or {@code null} if there is
+   * nothing usable.
+   */
+  public static Entry get(Inventory inventory, SlotRange slotRange, SortStrategy strategy) {
+    Entry entry = ENTRIES.get(inventory);
+    if (entry == null || !entry.slotRange.equals(slotRange) || entry.strategy != strategy ||
+        entry.generation != SortKeyCache.getInstance().getGeneration()) {
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Records what a sort of the inventory with this strategy left behind, as {@code contents}. Callers derive it from
+   * the snapshot the sort was planned from and the sort's plan, with {@link InventorySnapshot#withMoves}, rather than
+   * capturing the range again.
+   */
+  public static void record(Inventory inventory, SortStrategy strategy, InventorySnapshot contents) {
+    ENTRIES.put(inventory, new Entry(contents.getSlotRange(), strategy, SortKeyCache.getInstance().getGeneration(),
+        contents
+    ));
+  }
+
+  public static final class Entry {
+    private final SlotRange slotRange;
+    private final SortStrategy strategy;
+    private final int generation;
+    private final InventorySnapshot contents;
+
+    private Entry(SlotRange slotRange, SortStrategy strategy, int generation, InventorySnapshot contents) {
+      this.slotRange = slotRange;
+      this.strategy = strategy;
+      this.generation = generation;
+      this.contents = contents;
+    }
+
+    /**
+     * Whether the snapshot holds exactly what the last sort left in the range. The digest rejects almost every change
+     * cheaply; only a match is confirmed by comparing the actual items, components and counts slot by slot.
+     */
+    public boolean isUnchanged(InventorySnapshot snapshot) {
+      return this.contents.getDigest() == snapshot.getDigest() && this.contents.hasSameContents(snapshot);
+    }
+
+    /**
+     * Whether the slot at the given offset into the range still seems to hold what the last sort put there, judged by
+     * its hash alone. This only decides which entries an incremental sort re-sorts, so a hash collision can leave an
+     * entry out of order but never changes which items end up in the range.
+     */
+    public boolean isSlotUnchanged(int offset, long slotHash) {
+      return this.contents.getSlotHash(offset) == slotHash;
+    }
+  }
+}
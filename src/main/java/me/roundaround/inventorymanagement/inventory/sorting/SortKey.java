@@ -0,0 +1,84 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import net.minecraft.item.ItemStack;
+
+/**
+ * The per-entry view that {@link me.roundaround.inventorymanagement.api.SortStrategy} extractors and
+ * {@link PackedKeySorter} work on. Holds the comparison keys for a single stack so that they are only computed once
+ * per sort. Everything but the count comes from the shared {@link SortKeyCache}, and the component fingerprint is only
+ * built on demand, since it is only needed for stacks still tied after the cheaper keys. Instances are pooled by
+ * {@link SortScratch} and repointed for every sort, so they must not be held on to after the sort that produced them.
+ */
+public final class SortKey {
+  private ItemStack itemStack;
+  private ItemSortData data;
+  private int count;
+  private int countOrDurability;
+  private int tag;
+
+  private int[] compiledKeys = null;
+  private int compiledOffset = 0;
+
+  SortKey() {
+  }
+
+  void set(ItemStack itemStack, ItemSortData data, int count, int tag) {
+    this.itemStack = itemStack;
+    this.data = data;
+    this.count = count;
+    this.countOrDurability = count > 1 ? count : data.getDurability();
+    this.tag = tag;
+    this.compiledKeys = null;
+    this.compiledOffset = 0;
+  }
+
+  void clear() {
+    this.itemStack = null;
+    this.data = null;
+    this.compiledKeys = null;
+  }
+
+  /**
+   * Returns a stack with the sorted entry's item and components. Its count is not necessarily the entry's; use
+   * {@link #getCount} for that.
+   */
+  public ItemStack getItemStack() {
+    return this.itemStack;
+  }
+
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * Returns the tag the entry was created with, for finding it again after sorting, or {@code -1} if it has none.
+   */
+  public int getTag() {
+    return this.tag;
+  }
+
+  public String getBaseName() {
+    return this.data.getBaseName();
+  }
+
+  public int getItemRank() {
+    return this.data.getItemRank();
+  }
+
+  public int getCountOrDurability() {
+    return this.countOrDurability;
+  }
+
+  public ComponentFingerprint getFingerprint() {
+    return this.data.getFingerprint();
+  }
+
+  public int getCompiledKey(int index) {
+    return this.compiledKeys[this.compiledOffset + index];
+  }
+
+  void setCompiledKeys(int[] compiledKeys, int offset) {
+    this.compiledKeys = compiledKeys;
+    this.compiledOffset = offset;
+  }
+}
@@ -0,0 +1,121 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import me.roundaround.inventorymanagement.inventory.ItemKey;
+import net.minecraft.item.ItemStack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of {@link ItemSortData} keyed by item and components, shared by every sort on every thread. The
+ * key space is split over a fixed number of independently locked LRU segments so that concurrent planners rarely
+ * contend. Names depend on the loaded language and registries, so the cache is cleared on resource and data pack
+ * reloads.
+ */
+public final class SortKeyCache {
+  private static final int SEGMENT_COUNT = 16;
+  private static final int DEFAULT_CAPACITY = 4096;
+  private static final SortKeyCache INSTANCE = new SortKeyCache(DEFAULT_CAPACITY);
+
+  private static final ThreadLocal<ItemKey> LOOKUP_KEY = ThreadLocal.withInitial(ItemKey::reusable);
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final AtomicInteger generation = new AtomicInteger();
+
+  private SortKeyCache(int capacity) {
+    int segmentCapacity = Math.max(1, capacity / SEGMENT_COUNT);
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      this.segments[i] = new Segment(segmentCapacity);
+    }
+  }
+
+  public static SortKeyCache getInstance() {
+    return INSTANCE;
+  }
+
+  public ItemSortData get(ItemStack itemStack) {
+    ItemKey lookupKey = LOOKUP_KEY.get().set(itemStack);
+    Segment segment = this.getSegment(lookupKey);
+
+    try {
+      synchronized (segment) {
+        ItemSortData data = segment.get(lookupKey);
+        if (data != null) {
+          this.hits.increment();
+          return data;
+        }
+      }
+    } finally {
+      lookupKey.set(null);
+    }
+
+    // Build outside the lock; a racing thread may build the same entry, which is harmless.
+    this.misses.increment();
+    ItemKey ownedKey = ItemKey.copyOf(itemStack);
+    ItemSortData data = new ItemSortData(ownedKey.getItemStack());
+
+    synchronized (segment) {
+      ItemSortData existing = segment.putIfAbsent(ownedKey, data);
+      return existing != null ? existing : data;
+    }
+  }
+
+  public void invalidate() {
+    this.generation.incrementAndGet();
+    for (Segment segment : this.segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * Incremented on every {@link #invalidate}, so that results derived from cached sort data can tell when they are
+   * stale.
+   */
+  public int getGeneration() {
+    return this.generation.get();
+  }
+
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : this.segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  private Segment getSegment(ItemKey key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return this.segments[hash & (SEGMENT_COUNT - 1)];
+  }
+
+  private static final class Segment extends LinkedHashMap<ItemKey, ItemSortData> {
+    private final int capacity;
+
+    private Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<ItemKey, ItemSortData> eldest) {
+      return this.size() > this.capacity;
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import me.roundaround.inventorymanagement.inventory.InventorySnapshot;
+import me.roundaround.inventorymanagement.inventory.ItemKeyTable;
+import net.minecraft.item.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch buffers for the sort pipeline. Arrays only ever grow, so once a thread has sorted an inventory of
+ * a given size, merging, building keys and sorting allocate nothing for later sorts of that size or smaller.
+ * {@link #release} must be called when a sort finishes so that no stacks are kept reachable between sorts.
+ * <p>
+ * A sort still allocates what outlives it or crosses threads, none of it per slot: the {@link InventorySnapshot} it
+ * starts from, with one prototype per distinct item in its {@link ItemKeyTable}, the
+ * {@link me.roundaround.inventorymanagement.inventory.InventoryPlan} it produces, the copy of the snapshot's arrays
+ * with the plan applied that {@link SortHistory} keeps, and the stacks written into the inventory. Snapshots and plans
+ * are handed to the background pool and kept by the history, so they can't come from a per-thread pool.
+ */
+public final class SortScratch {
+  private static final ThreadLocal<SortScratch> INSTANCE = ThreadLocal.withInitial(SortScratch::new);
+  private static final int INITIAL_CAPACITY = 64;
+
+  private SortKey[] keys = new SortKey[0];
+  private SortKey[] sortedKeys = new SortKey[INITIAL_CAPACITY];
+  private SortKey[] dirtyKeys = new SortKey[INITIAL_CAPACITY];
+  private int[] compiledKeys = new int[INITIAL_CAPACITY];
+  private long[] packed = new long[INITIAL_CAPACITY];
+  private long[] packedBuffer = new long[INITIAL_CAPACITY];
+  private String[] stringValues = new String[INITIAL_CAPACITY];
+  private String[] distinctStrings = new String[INITIAL_CAPACITY];
+  private final int[] radixCounts = new int[256];
+  private long[] columnMins = new long[4];
+  private int[] columnWidths = new int[4];
+  private int[] origins = new int[INITIAL_CAPACITY];
+  private int[] entryKeys = new int[INITIAL_CAPACITY];
+  private int[] entryCounts = new int[INITIAL_CAPACITY];
+  private int[] keyTotals = new int[INITIAL_CAPACITY];
+  private boolean[] clean = new boolean[INITIAL_CAPACITY];
+  private long[] slotHashes = new long[INITIAL_CAPACITY];
+
+  private final Object2IntOpenHashMap<String> stringRanks = new Object2IntOpenHashMap<>();
+
+  private SortScratch() {
+    this.stringRanks.defaultReturnValue(-1);
+  }
+
+  public static SortScratch get() {
+    return INSTANCE.get();
+  }
+
+  /**
+   * Points pooled sort keys at the first {@code count} entries given as item key ids and counts, and returns them.
+   * Each key is tagged with the index of its entry and backed by the table's prototype for its id.
+   */
+  public SortKey[] keys(ItemKeyTable table, int[] keyIds, int[] counts, int count) {
+    this.ensureKeys(count);
+    SortKeyCache cache = SortKeyCache.getInstance();
+    for (int i = 0; i < count; i++) {
+      ItemStack prototype = table.getPrototype(keyIds[i]);
+      this.keys[i].set(prototype, cache.get(prototype), counts[i], i);
+    }
+    return this.keys;
+  }
+
+  private void ensureKeys(int count) {
+    if (this.keys.length < count) {
+      SortKey[] keys = new SortKey[grow(this.keys.length, count)];
+      System.arraycopy(this.keys, 0, keys, 0, this.keys.length);
+      for (int i = this.keys.length; i < keys.length; i++) {
+        keys[i] = new SortKey();
+      }
+      this.keys = keys;
+    }
+  }
+
+  public int[] origins(int capacity) {
+    if (this.origins.length < capacity) {
+      this.origins = new int[grow(this.origins.length, capacity)];
+    }
+    return this.origins;
+  }
+
+  public int[] entryKeys(int capacity) {
+    if (this.entryKeys.length < capacity) {
+      this.entryKeys = new int[grow(this.entryKeys.length, capacity)];
+    }
+    return this.entryKeys;
+  }
+
+  public int[] entryCounts(int capacity) {
+    if (this.entryCounts.length < capacity) {
+      this.entryCounts = new int[grow(this.entryCounts.length, capacity)];
+    }
+    return this.entryCounts;
+  }
+
+  /**
+   * Returns a per-key-id counter array with the first {@code capacity} entries zeroed.
+   */
+  public int[] keyTotals(int capacity) {
+    if (this.keyTotals.length < capacity) {
+      this.keyTotals = new int[grow(this.keyTotals.length, capacity)];
+    } else {
+      Arrays.fill(this.keyTotals, 0, capacity, 0);
+    }
+    return this.keyTotals;
+  }
+
+  public boolean[] clean(int capacity) {
+    if (this.clean.length < capacity) {
+      this.clean = new boolean[grow(this.clean.length, capacity)];
+    }
+    return this.clean;
+  }
+
+  public long[] slotHashes(int capacity) {
+    if (this.slotHashes.length < capacity) {
+      this.slotHashes = new long[grow(this.slotHashes.length, capacity)];
+    }
+    return this.slotHashes;
+  }
+
+  SortKey[] dirtyKeys(int capacity) {
+    if (this.dirtyKeys.length < capacity) {
+      this.dirtyKeys = new SortKey[grow(this.dirtyKeys.length, capacity)];
+    }
+    return this.dirtyKeys;
+  }
+
+  SortKey[] sortedKeys(int capacity) {
+    if (this.sortedKeys.length < capacity) {
+      this.sortedKeys = new SortKey[grow(this.sortedKeys.length, capacity)];
+    }
+    return this.sortedKeys;
+  }
+
+  int[] compiledKeys(int capacity) {
+    if (this.compiledKeys.length < capacity) {
+      this.compiledKeys = new int[grow(this.compiledKeys.length, capacity)];
+    }
+    return this.compiledKeys;
+  }
+
+  long[] packed(int capacity) {
+    if (this.packed.length < capacity) {
+      this.packed = new long[grow(this.packed.length, capacity)];
+    }
+    return this.packed;
+  }
+
+  long[] packedBuffer(int capacity) {
+    if (this.packedBuffer.length < capacity) {
+      this.packedBuffer = new long[grow(this.packedBuffer.length, capacity)];
+    }
+    return this.packedBuffer;
+  }
+
+  String[] stringValues(int capacity) {
+    if (this.stringValues.length < capacity) {
+      this.stringValues = new String[grow(this.stringValues.length, capacity)];
+    }
+    return this.stringValues;
+  }
+
+  String[] distinctStrings(int capacity) {
+    if (this.distinctStrings.length < capacity) {
+      this.distinctStrings = new String[grow(this.distinctStrings.length, capacity)];
+    }
+    return this.distinctStrings;
+  }
+
+  long[] columnMins(int capacity) {
+    if (this.columnMins.length < capacity) {
+      this.columnMins = new long[grow(this.columnMins.length, capacity)];
+    }
+    return this.columnMins;
+  }
+
+  int[] columnWidths(int capacity) {
+    if (this.columnWidths.length < capacity) {
+      this.columnWidths = new int[grow(this.columnWidths.length, capacity)];
+    }
+    return this.columnWidths;
+  }
+
+  int[] radixCounts() {
+    return this.radixCounts;
+  }
+
+  Object2IntOpenHashMap<String> stringRanks() {
+    return this.stringRanks;
+  }
+
+  /**
+   * Drops every reference to stacks and strings gathered during the last sort of up to {@code count} entries.
+   */
+  public void release(int count) {
+    int keyCount = Math.min(count, this.keys.length);
+    for (int i = 0; i < keyCount; i++) {
+      this.keys[i].clear();
+    }
+    clear(this.sortedKeys, count);
+    clear(this.dirtyKeys, count);
+    clear(this.stringValues, count);
+    clear(this.distinctStrings, count);
+    this.stringRanks.clear();
+  }
+
+  private static void clear(Object[] array, int count) {
+    Arrays.fill(array, 0, Math.min(count, array.length), null);
+  }
+
+  private static int grow(int current, int required) {
+    return Math.max(required, Math.max(INITIAL_CAPACITY, current * 2));
+  }
+}
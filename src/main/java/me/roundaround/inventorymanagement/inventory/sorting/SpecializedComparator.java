@@ -0,0 +1,98 @@
+package me.roundaround.inventorymanagement.inventory.sorting;
+
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Drop-in replacement for {@link SerialComparator#comparing} that generates a dedicated hidden class for each
+ * comparator chain. The sub-comparators are handed to the class as class data and loaded through constant dynamic
+ * entries, so the JIT sees each one as a constant and can inline through the whole chain instead of dispatching
+ * through the shared, megamorphic loop in {@link SerialComparator}. Falls back to a {@link SerialComparator} if the
+ * class cannot be defined.
+ */
+public final class SpecializedComparator {
+  private static final String CLASS_NAME =
+      Type.getInternalName(SpecializedComparator.class) + "$Generated";
+  private static final String COMPARATOR = Type.getInternalName(Comparator.class);
+  private static final String COMPARATOR_DESCRIPTOR = Type.getDescriptor(Comparator.class);
+  private static final Handle CLASS_DATA_AT = new Handle(Opcodes.H_INVOKESTATIC,
+      Type.getInternalName(MethodHandles.class), "classDataAt",
+      "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;I)Ljava/lang/Object;", false
+  );
+
+  private SpecializedComparator() {
+  }
+
+  @SafeVarargs
+  public static <T> Comparator<T> comparing(Comparator<T>... baseComparators) {
+    return comparing(List.of(baseComparators));
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Comparator<T> comparing(Collection<Comparator<T>> baseComparators) {
+    List<Comparator<T>> comparators = List.copyOf(baseComparators);
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup()
+          .defineHiddenClassWithClassData(generate(comparators.size()), comparators, true);
+      return (Comparator<T>) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+          .invoke();
+    } catch (Throwable e) {
+      InventoryManagementMod.LOGGER.warn("Failed to generate specialized comparator, using generic chain", e);
+      return SerialComparator.comparing(comparators);
+    }
+  }
+
+  private static byte[] generate(int size) {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+    writer.visit(Opcodes.V17, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, CLASS_NAME, null, "java/lang/Object",
+        new String[]{COMPARATOR}
+    );
+
+    MethodVisitor init = writer.visitMethod(0, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+
+    MethodVisitor compare = writer.visitMethod(Opcodes.ACC_PUBLIC, "compare",
+        "(Ljava/lang/Object;Ljava/lang/Object;)I", null, null
+    );
+    compare.visitCode();
+    for (int i = 0; i < size; i++) {
+      Label next = new Label();
+      compare.visitLdcInsn(new ConstantDynamic("comparator" + i, COMPARATOR_DESCRIPTOR, CLASS_DATA_AT, i));
+      compare.visitVarInsn(Opcodes.ALOAD, 1);
+      compare.visitVarInsn(Opcodes.ALOAD, 2);
+      compare.visitMethodInsn(Opcodes.INVOKEINTERFACE, COMPARATOR, "compare",
+          "(Ljava/lang/Object;Ljava/lang/Object;)I", true
+      );
+      compare.visitVarInsn(Opcodes.ISTORE, 3);
+      compare.visitVarInsn(Opcodes.ILOAD, 3);
+      compare.visitJumpInsn(Opcodes.IFEQ, next);
+      compare.visitVarInsn(Opcodes.ILOAD, 3);
+      compare.visitInsn(Opcodes.IRETURN);
+      compare.visitLabel(next);
+    }
+    compare.visitInsn(Opcodes.ICONST_0);
+    compare.visitInsn(Opcodes.IRETURN);
+    compare.visitMaxs(0, 0);
+    compare.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+}
@@ -0,0 +1,62 @@
+package me.roundaround.inventorymanagement.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.encoding.VarInts;
+import net.minecraft.util.Identifier;
+
+/**
+ * One entry of a {@link Networking.BatchC2S}. {@code playerSide} is the side the operation acts on for sorts and the
+ * side items come from for stacks and transfers, matching the flag of the corresponding single-operation payload.
+ * {@code strategy} is only used by sorts and may be {@code null}, in which case the server's default applies.
+ * <p>
+ * Entries are encoded as a single varint header holding the type, whether a strategy follows and the side, followed
+ * by the strategy if there is one, so most entries take a single byte.
+ */
+public record BatchOperation(OperationType type, boolean playerSide, Identifier strategy) {
+  private static final int SIDE_BIT = 1;
+  private static final int STRATEGY_BIT = 2;
+  private static final int TYPE_SHIFT = 2;
+
+  public static final PacketCodec<ByteBuf, BatchOperation> PACKET_CODEC = PacketCodec.of(
+      BatchOperation::write, BatchOperation::read);
+
+  public static BatchOperation sort(boolean isPlayerInventory, Identifier strategy) {
+    return new BatchOperation(OperationType.SORT, isPlayerInventory, strategy);
+  }
+
+  public static BatchOperation stack(boolean fromPlayerInventory) {
+    return new BatchOperation(OperationType.STACK, fromPlayerInventory, null);
+  }
+
+  public static BatchOperation transfer(boolean fromPlayerInventory) {
+    return new BatchOperation(OperationType.TRANSFER, fromPlayerInventory, null);
+  }
+
+  private void write(ByteBuf buf) {
+    int header = this.type.ordinal() << TYPE_SHIFT;
+    if (this.playerSide) {
+      header |= SIDE_BIT;
+    }
+    if (this.strategy != null) {
+      header |= STRATEGY_BIT;
+    }
+    VarInts.write(buf, header);
+    if (this.strategy != null) {
+      Identifier.PACKET_CODEC.encode(buf, this.strategy);
+    }
+  }
+
+  private static BatchOperation read(ByteBuf buf) {
+    int header = VarInts.read(buf);
+    int typeIndex = header >>> TYPE_SHIFT;
+    OperationType[] types = OperationType.values();
+    if (typeIndex >= types.length) {
+      throw new DecoderException("Unknown batch operation type " + typeIndex);
+    }
+
+    Identifier strategy = (header & STRATEGY_BIT) != 0 ? Identifier.PACKET_CODEC.decode(buf) : null;
+    return new BatchOperation(types[typeIndex], (header & SIDE_BIT) != 0, strategy);
+  }
+}
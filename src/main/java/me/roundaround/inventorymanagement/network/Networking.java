@@ -1,25 +1,57 @@
 package me.roundaround.inventorymanagement.network;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
 import me.roundaround.inventorymanagement.InventoryManagementMod;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.minecraft.item.ItemStack;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.encoding.VarInts;
 import net.minecraft.network.packet.CustomPayload;
 import net.minecraft.util.Identifier;
 
+import java.util.List;
+
 public final class Networking {
   private Networking() {
   }
 
   public static final Identifier STACK_C2S = new Identifier(InventoryManagementMod.MOD_ID, "stack_c2s");
-  public static final Identifier SORT_C2S = new Identifier(InventoryManagementMod.MOD_ID, "sort_c2s");
+  public static final Identifier LEGACY_SORT_C2S = new Identifier(InventoryManagementMod.MOD_ID, "sort_c2s");
+  public static final Identifier SORT_C2S = new Identifier(InventoryManagementMod.MOD_ID, "sort_v2_c2s");
   public static final Identifier TRANSFER_C2S = new Identifier(InventoryManagementMod.MOD_ID, "transfer_c2s");
+  public static final Identifier BATCH_C2S = new Identifier(InventoryManagementMod.MOD_ID, "batch_c2s");
+  public static final Identifier OPERATION_RESULT_S2C =
+      new Identifier(InventoryManagementMod.MOD_ID, "operation_result_s2c");
+  public static final Identifier CAPABILITIES_S2C = new Identifier(InventoryManagementMod.MOD_ID, "capabilities_s2c");
 
   public static void registerC2SPayloads() {
     PayloadTypeRegistry.playC2S().register(StackC2S.ID, StackC2S.CODEC);
+    PayloadTypeRegistry.playC2S().register(LegacySortC2S.ID, LegacySortC2S.CODEC);
     PayloadTypeRegistry.playC2S().register(SortC2S.ID, SortC2S.CODEC);
     PayloadTypeRegistry.playC2S().register(TransferC2S.ID, TransferC2S.CODEC);
+    PayloadTypeRegistry.playC2S().register(BatchC2S.ID, BatchC2S.CODEC);
+  }
+
+  public static void registerS2CPayloads() {
+    PayloadTypeRegistry.playS2C().register(OperationResultS2C.ID, OperationResultS2C.CODEC);
+    PayloadTypeRegistry.configurationS2C().register(CapabilitiesS2C.ID, CapabilitiesS2C.CODEC);
+  }
+
+  /**
+   * Sent during the configuration phase, so the client knows what it can request before any screen opens.
+   */
+  public record CapabilitiesS2C(ServerCapabilities capabilities) implements CustomPayload {
+    public static final CustomPayload.Id<CapabilitiesS2C> ID = new CustomPayload.Id<>(CAPABILITIES_S2C);
+    public static final PacketCodec<ByteBuf, CapabilitiesS2C> CODEC = PacketCodec.tuple(
+        ServerCapabilities.PACKET_CODEC, CapabilitiesS2C::capabilities, CapabilitiesS2C::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+      return ID;
+    }
   }
 
   public record StackC2S(boolean fromPlayerInventory) implements CustomPayload {
@@ -33,10 +65,25 @@ public final class Networking {
     }
   }
 
-  public record SortC2S(boolean isPlayerInventory) implements CustomPayload {
+  /**
+   * The sort request sent by releases from before sort strategies were selectable. Still accepted, and handled with
+   * the default strategy.
+   */
+  public record LegacySortC2S(boolean isPlayerInventory) implements CustomPayload {
+    public static final CustomPayload.Id<LegacySortC2S> ID = new CustomPayload.Id<>(LEGACY_SORT_C2S);
+    public static final PacketCodec<RegistryByteBuf, LegacySortC2S> CODEC = PacketCodec.tuple(
+        PacketCodecs.BOOL, LegacySortC2S::isPlayerInventory, LegacySortC2S::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+      return ID;
+    }
+  }
+
+  public record SortC2S(boolean isPlayerInventory, Identifier strategy) implements CustomPayload {
     public static final CustomPayload.Id<SortC2S> ID = new CustomPayload.Id<>(SORT_C2S);
     public static final PacketCodec<RegistryByteBuf, SortC2S> CODEC = PacketCodec.tuple(
-        PacketCodecs.BOOL, SortC2S::isPlayerInventory, SortC2S::new);
+        PacketCodecs.BOOL, SortC2S::isPlayerInventory, Identifier.PACKET_CODEC, SortC2S::strategy, SortC2S::new);
 
     @Override
     public Id<? extends CustomPayload> getId() {
@@ -54,4 +101,92 @@ public final class Networking {
       return ID;
     }
   }
+
+  /**
+   * An ordered list of operations for the server to run back to back, with a single sync of the resulting contents.
+   */
+  public record BatchC2S(List<BatchOperation> operations) implements CustomPayload {
+    public static final int MAX_OPERATIONS = 16;
+
+    public static final CustomPayload.Id<BatchC2S> ID = new CustomPayload.Id<>(BATCH_C2S);
+    public static final PacketCodec<RegistryByteBuf, BatchC2S> CODEC = PacketCodec.tuple(
+        BatchOperation.PACKET_CODEC.collect(PacketCodecs.toList(MAX_OPERATIONS)), BatchC2S::operations,
+        BatchC2S::new);
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+      return ID;
+    }
+  }
+
+  /**
+   * The slots of one screen handler that changed in an operation, sent in place of one slot update per slot. Each
+   * move says that a slot now holds a copy of what another slot held before, as the client last saw it, so the
+   * client reads every move's source before writing anything. Only slots whose new contents weren't anywhere in the
+   * handler before carry a stack. Slot indices are ascending within each list and encoded as varint gaps.
+   */
+  public record OperationResultS2C(
+      int syncId, int revision, int[] moveSlots, int[] moveSources, int[] contentSlots, List<ItemStack> contents
+  ) implements CustomPayload {
+    public static final CustomPayload.Id<OperationResultS2C> ID = new CustomPayload.Id<>(OPERATION_RESULT_S2C);
+    public static final PacketCodec<RegistryByteBuf, OperationResultS2C> CODEC = PacketCodec.of(
+        OperationResultS2C::write, OperationResultS2C::read);
+
+    private void write(RegistryByteBuf buf) {
+      VarInts.write(buf, this.syncId);
+      VarInts.write(buf, this.revision);
+      writeSlots(buf, this.moveSlots);
+      for (int source : this.moveSources) {
+        VarInts.write(buf, source);
+      }
+      writeSlots(buf, this.contentSlots);
+      for (ItemStack itemStack : this.contents) {
+        ItemStack.OPTIONAL_PACKET_CODEC.encode(buf, itemStack);
+      }
+    }
+
+    private static OperationResultS2C read(RegistryByteBuf buf) {
+      int syncId = VarInts.read(buf);
+      int revision = VarInts.read(buf);
+      int[] moveSlots = readSlots(buf);
+      int[] moveSources = new int[moveSlots.length];
+      for (int i = 0; i < moveSources.length; i++) {
+        moveSources[i] = VarInts.read(buf);
+      }
+      int[] contentSlots = readSlots(buf);
+      ItemStack[] contents = new ItemStack[contentSlots.length];
+      for (int i = 0; i < contents.length; i++) {
+        contents[i] = ItemStack.OPTIONAL_PACKET_CODEC.decode(buf);
+      }
+      return new OperationResultS2C(syncId, revision, moveSlots, moveSources, contentSlots, List.of(contents));
+    }
+
+    private static void writeSlots(RegistryByteBuf buf, int[] slots) {
+      VarInts.write(buf, slots.length);
+      int previous = -1;
+      for (int slot : slots) {
+        VarInts.write(buf, slot - previous - 1);
+        previous = slot;
+      }
+    }
+
+    private static int[] readSlots(RegistryByteBuf buf) {
+      int count = VarInts.read(buf);
+      if (count < 0 || count > buf.readableBytes()) {
+        throw new DecoderException("Invalid slot count " + count);
+      }
+      int[] slots = new int[count];
+      int previous = -1;
+      for (int i = 0; i < count; i++) {
+        slots[i] = previous + 1 + VarInts.read(buf);
+        previous = slots[i];
+      }
+      return slots;
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+      return ID;
+    }
+  }
 }
@@ -0,0 +1,20 @@
+package me.roundaround.inventorymanagement.network;
+
+/**
+ * The kinds of inventory operation a client can request. Rate limits and statistics are tracked per type.
+ */
+public enum OperationType {
+  SORT("sort"),
+  STACK("stack"),
+  TRANSFER("transfer");
+
+  private final String id;
+
+  OperationType(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return this.id;
+  }
+}
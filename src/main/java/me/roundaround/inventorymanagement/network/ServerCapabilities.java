@@ -0,0 +1,112 @@
+package me.roundaround.inventorymanagement.network;
+
+import io.netty.buffer.ByteBuf;
+import me.roundaround.inventorymanagement.api.SortStrategy;
+import me.roundaround.inventorymanagement.api.SortStrategyRegistry;
+import me.roundaround.inventorymanagement.config.InventoryManagementConfig;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.encoding.VarInts;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+
+/**
+ * What the server can do for clients, announced once while they join. {@code flags} has one bit per supported
+ * {@link OperationType}, by ordinal, plus {@link #BATCH} if the server accepts {@link Networking.BatchC2S}. Rate limits
+ * are in requests per second, with {@code rateLimitBurst} the most that can be sent at once.
+ * <p>
+ * Only the protocol version is readable by every version of the mod. Capabilities with a different version are read
+ * as supporting nothing, so clients never send payloads the server might read differently.
+ */
+public record ServerCapabilities(
+    int protocolVersion,
+    int flags,
+    List<Identifier> strategies,
+    int sortRateLimit,
+    int stackRateLimit,
+    int transferRateLimit,
+    int rateLimitBurst
+) {
+  public static final int PROTOCOL_VERSION = 1;
+  public static final int BATCH = 1 << 16;
+  public static final int MAX_STRATEGIES = 256;
+
+  /**
+   * What a client assumes before it hears from the server, and for servers without the mod.
+   */
+  public static final ServerCapabilities NONE = new ServerCapabilities(0, 0, List.of(), 0, 0, 0, 0);
+
+  public static final PacketCodec<ByteBuf, ServerCapabilities> PACKET_CODEC = PacketCodec.of(
+      ServerCapabilities::write, ServerCapabilities::read);
+
+  private static final PacketCodec<ByteBuf, List<Identifier>> STRATEGIES_CODEC = Identifier.PACKET_CODEC.collect(
+      PacketCodecs.toList(MAX_STRATEGIES));
+
+  public static ServerCapabilities current() {
+    int flags = BATCH;
+    for (OperationType type : OperationType.values()) {
+      flags |= bit(type);
+    }
+
+    InventoryManagementConfig config = InventoryManagementConfig.getInstance();
+    List<Identifier> strategies = SortStrategyRegistry.getAll()
+        .stream()
+        .map(SortStrategy::getId)
+        .limit(MAX_STRATEGIES)
+        .toList();
+    return new ServerCapabilities(PROTOCOL_VERSION, flags, strategies, config.sortRateLimit.getValue(),
+        config.stackRateLimit.getValue(), config.transferRateLimit.getValue(), config.rateLimitBurst.getValue()
+    );
+  }
+
+  public boolean isCompatible() {
+    return this.protocolVersion == PROTOCOL_VERSION;
+  }
+
+  public boolean supports(OperationType type) {
+    return this.isCompatible() && (this.flags & bit(type)) != 0;
+  }
+
+  public boolean supportsBatch() {
+    return this.isCompatible() && (this.flags & BATCH) != 0;
+  }
+
+  public boolean supportsStrategy(Identifier id) {
+    return this.supports(OperationType.SORT) && this.strategies.contains(id);
+  }
+
+  public int getRateLimit(OperationType type) {
+    return switch (type) {
+      case SORT -> this.sortRateLimit;
+      case STACK -> this.stackRateLimit;
+      case TRANSFER -> this.transferRateLimit;
+    };
+  }
+
+  private static int bit(OperationType type) {
+    return 1 << type.ordinal();
+  }
+
+  private void write(ByteBuf buf) {
+    VarInts.write(buf, this.protocolVersion);
+    VarInts.write(buf, this.flags);
+    STRATEGIES_CODEC.encode(buf, this.strategies);
+    VarInts.write(buf, this.sortRateLimit);
+    VarInts.write(buf, this.stackRateLimit);
+    VarInts.write(buf, this.transferRateLimit);
+    VarInts.write(buf, this.rateLimitBurst);
+  }
+
+  private static ServerCapabilities read(ByteBuf buf) {
+    int protocolVersion = VarInts.read(buf);
+    if (protocolVersion != PROTOCOL_VERSION) {
+      buf.skipBytes(buf.readableBytes());
+      return new ServerCapabilities(protocolVersion, 0, List.of(), 0, 0, 0, 0);
+    }
+
+    return new ServerCapabilities(protocolVersion, VarInts.read(buf), STRATEGIES_CODEC.decode(buf), VarInts.read(buf),
+        VarInts.read(buf), VarInts.read(buf), VarInts.read(buf)
+    );
+  }
+}
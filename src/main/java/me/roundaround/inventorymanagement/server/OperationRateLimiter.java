@@ -0,0 +1,92 @@
+package me.roundaround.inventorymanagement.server;
+
+import me.roundaround.inventorymanagement.config.InventoryManagementConfig;
+import me.roundaround.inventorymanagement.network.OperationType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-player token buckets, one for each {@link OperationType}. Buckets refill continuously at the configured rate
+ * per second and hold at most the configured burst, so a player can fire off a handful of requests at once but not
+ * sustain more than the rate. Only used on the server thread.
+ */
+final class OperationRateLimiter {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final Map<UUID, Bucket[]> buckets = new HashMap<>();
+
+  /**
+   * Takes one token per entry of {@code types} from the player's buckets, returning {@code false} without taking any
+   * if a bucket doesn't hold enough. No request takes more than the burst from a bucket, so a batch with more
+   * operations of one type than that still goes through once the bucket is full, instead of never.
+   */
+  boolean tryAcquire(UUID player, List<OperationType> types) {
+    InventoryManagementConfig config = InventoryManagementConfig.getInstance();
+    int burst = Math.max(1, config.rateLimitBurst.getValue());
+    Bucket[] playerBuckets =
+        this.buckets.computeIfAbsent(player, (uuid) -> new Bucket[OperationType.values().length]);
+    long now = System.nanoTime();
+
+    int[] needed = new int[playerBuckets.length];
+    for (OperationType type : types) {
+      needed[type.ordinal()] = Math.min(burst, needed[type.ordinal()] + 1);
+    }
+
+    for (OperationType type : OperationType.values()) {
+      if (needed[type.ordinal()] == 0) {
+        continue;
+      }
+
+      Bucket bucket = playerBuckets[type.ordinal()];
+      if (bucket == null) {
+        bucket = new Bucket(burst, now);
+        playerBuckets[type.ordinal()] = bucket;
+      }
+      bucket.refill(now, getRate(config, type), burst);
+      if (bucket.tokens < needed[type.ordinal()]) {
+        return false;
+      }
+    }
+
+    for (OperationType type : OperationType.values()) {
+      if (needed[type.ordinal()] != 0) {
+        playerBuckets[type.ordinal()].tokens -= needed[type.ordinal()];
+      }
+    }
+    return true;
+  }
+
+  void remove(UUID player) {
+    this.buckets.remove(player);
+  }
+
+  void clear() {
+    this.buckets.clear();
+  }
+
+  private static int getRate(InventoryManagementConfig config, OperationType type) {
+    return switch (type) {
+      case SORT -> config.sortRateLimit.getValue();
+      case STACK -> config.stackRateLimit.getValue();
+      case TRANSFER -> config.transferRateLimit.getValue();
+    };
+  }
+
+  private static final class Bucket {
+    private double tokens;
+    private long lastRefill;
+
+    private Bucket(double tokens, long lastRefill) {
+      this.tokens = tokens;
+      this.lastRefill = lastRefill;
+    }
+
+    private void refill(long now, int rate, int burst) {
+      this.tokens = Math.min(burst, this.tokens + (double) (now - this.lastRefill) * rate / NANOS_PER_SECOND);
+      this.lastRefill = now;
+    }
+  }
+}
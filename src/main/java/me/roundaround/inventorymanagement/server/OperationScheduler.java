@@ -0,0 +1,185 @@
+package me.roundaround.inventorymanagement.server;
+
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import me.roundaround.inventorymanagement.config.InventoryManagementConfig;
+import me.roundaround.inventorymanagement.network.OperationType;
+import net.fabricmc.fabric.api.entity.event.v1.ServerPlayerEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs inventory operations requested by players on the server thread, a slice at a time, within a per-tick time
+ * budget. Every player has their own queue, and players take turns running one slice of the operation at the head of
+ * their queue, so a player spamming requests only delays their own. Once the budget for the tick is spent, whatever is
+ * left waits for the next tick. At least one slice runs per tick, so operations always make progress.
+ * <p>
+ * Requests are rate limited per player and {@link OperationType} when they are taken off the inbox at the end of the
+ * tick they arrived in. Identical requests from the same player within that tick are merged into one, and don't use
+ * up rate limit tokens. What happened to requests is counted in {@link #getStats}.
+ */
+public final class OperationScheduler {
+  private static final OperationScheduler INSTANCE = new OperationScheduler();
+
+  private final ConcurrentLinkedQueue<Submission> submissions = new ConcurrentLinkedQueue<>();
+  private final Map<UUID, ArrayDeque<Task>> queues = new HashMap<>();
+  private final ArrayDeque<UUID> rotation = new ArrayDeque<>();
+  private final Set<CoalesceKey> seen = new HashSet<>();
+  private final OperationRateLimiter rateLimiter = new OperationRateLimiter();
+  private final OperationStats stats = new OperationStats();
+
+  private OperationScheduler() {
+  }
+
+  public static OperationScheduler getInstance() {
+    return INSTANCE;
+  }
+
+  public static void register() {
+    ServerTickEvents.END_SERVER_TICK.register((server) -> INSTANCE.tick());
+    ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> INSTANCE.disconnect(handler.getPlayer()));
+    ServerPlayerEvents.AFTER_RESPAWN.register((oldPlayer, newPlayer, alive) -> INSTANCE.cancel(oldPlayer));
+    ServerLifecycleEvents.SERVER_STOPPED.register((server) -> INSTANCE.clear());
+  }
+
+  /**
+   * Queues the operation behind any the player already has pending, unless the player is over the rate limit for the
+   * type or submitted a request with an equal {@code key} in the same tick. The key must identify the request
+   * completely, including the inventory it acts on, and implement value equality. Safe to call from any thread; the
+   * operation only ever runs on the server thread.
+   */
+  public void submit(ServerPlayerEntity player, OperationType type, Object key, Operation operation) {
+    this.submit(player, List.of(type), key, operation);
+  }
+
+  /**
+   * Like {@link #submit(ServerPlayerEntity, OperationType, Object, Operation)}, for an operation made up of several
+   * typed steps. It takes a rate limit token for every step and is only queued if all of them are available.
+   */
+  public void submit(ServerPlayerEntity player, List<OperationType> types, Object key, Operation operation) {
+    this.submissions.add(new Submission(player.getUuid(), List.copyOf(types), key, operation));
+  }
+
+  /**
+   * Must be called on the server thread.
+   */
+  public OperationStats getStats() {
+    return this.stats;
+  }
+
+  /**
+   * Drops every operation the player has pending, including one that is partway done. Must be called on the server
+   * thread.
+   */
+  public void cancel(ServerPlayerEntity player) {
+    this.drainSubmissions();
+    if (this.queues.remove(player.getUuid()) != null) {
+      this.rotation.remove(player.getUuid());
+    }
+  }
+
+  private void disconnect(ServerPlayerEntity player) {
+    this.cancel(player);
+    this.rateLimiter.remove(player.getUuid());
+  }
+
+  private void clear() {
+    this.submissions.clear();
+    this.queues.clear();
+    this.rotation.clear();
+    this.rateLimiter.clear();
+    this.stats.reset();
+  }
+
+  private void tick() {
+    this.drainSubmissions();
+    this.seen.clear();
+    if (this.rotation.isEmpty()) {
+      return;
+    }
+
+    long budget = InventoryManagementConfig.getInstance().operationBudget.getValue() * 1000L;
+    long deadline = System.nanoTime() + budget;
+    boolean ranAny = false;
+    while (!this.rotation.isEmpty() && (!ranAny || System.nanoTime() < deadline)) {
+      UUID uuid = this.rotation.poll();
+      ArrayDeque<Task> queue = this.queues.get(uuid);
+      Task task = queue.peek();
+
+      try {
+        task.cursor = task.operation.run(task.cursor);
+      } catch (Exception e) {
+        InventoryManagementMod.LOGGER.error("Inventory operation failed", e);
+        task.cursor = Operation.DONE;
+      }
+      ranAny = true;
+
+      if (task.cursor == Operation.DONE) {
+        queue.poll();
+      }
+      if (queue.isEmpty()) {
+        this.queues.remove(uuid);
+      } else {
+        this.rotation.add(uuid);
+      }
+    }
+  }
+
+  private void drainSubmissions() {
+    Submission submission;
+    while ((submission = this.submissions.poll()) != null) {
+      if (!this.seen.add(new CoalesceKey(submission.player(), submission.key()))) {
+        submission.types().forEach(this.stats::recordCoalesced);
+        continue;
+      }
+      if (!this.rateLimiter.tryAcquire(submission.player(), submission.types())) {
+        submission.types().forEach(this.stats::recordDropped);
+        continue;
+      }
+      submission.types().forEach(this.stats::recordAccepted);
+
+      ArrayDeque<Task> queue = this.queues.computeIfAbsent(submission.player(), (uuid) -> new ArrayDeque<>());
+      if (queue.isEmpty()) {
+        this.rotation.add(submission.player());
+      }
+      queue.add(new Task(submission.operation()));
+    }
+  }
+
+  /**
+   * An operation that can be split into slices. Each call runs one slice starting at {@code cursor}, which is
+   * {@code 0} for the first slice, and returns the cursor for the next one, or {@link #DONE} when the operation is
+   * complete. Operations that can't be split simply do all of their work in the first slice.
+   */
+  @FunctionalInterface
+  public interface Operation {
+    int DONE = -1;
+
+    int run(int cursor);
+  }
+
+  private record Submission(UUID player, List<OperationType> types, Object key, Operation operation) {
+  }
+
+  private record CoalesceKey(UUID player, Object key) {
+  }
+
+  private static final class Task {
+    private final Operation operation;
+    private int cursor = 0;
+
+    private Task(Operation operation) {
+      this.operation = operation;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package me.roundaround.inventorymanagement.server;
+
+import me.roundaround.inventorymanagement.network.OperationType;
+
+/**
+ * Running counts of what happened to requested operations since the server started, per {@link OperationType}.
+ * Updated and read on the server thread.
+ */
+public final class OperationStats {
+  private final long[] accepted = new long[OperationType.values().length];
+  private final long[] coalesced = new long[OperationType.values().length];
+  private final long[] dropped = new long[OperationType.values().length];
+
+  OperationStats() {
+  }
+
+  /**
+   * Requests that passed the rate limiter and were queued.
+   */
+  public long getAccepted(OperationType type) {
+    return this.accepted[type.ordinal()];
+  }
+
+  /**
+   * Requests merged into an identical request from the same player in the same tick.
+   */
+  public long getCoalesced(OperationType type) {
+    return this.coalesced[type.ordinal()];
+  }
+
+  /**
+   * Requests rejected by the rate limiter.
+   */
+  public long getDropped(OperationType type) {
+    return this.dropped[type.ordinal()];
+  }
+
+  void recordAccepted(OperationType type) {
+    this.accepted[type.ordinal()]++;
+  }
+
+  void recordCoalesced(OperationType type) {
+    this.coalesced[type.ordinal()]++;
+  }
+
+  void recordDropped(OperationType type) {
+    this.dropped[type.ordinal()]++;
+  }
+
+  void reset() {
+    for (OperationType type : OperationType.values()) {
+      this.accepted[type.ordinal()] = 0;
+      this.coalesced[type.ordinal()] = 0;
+      this.dropped[type.ordinal()] = 0;
+    }
+  }
+}
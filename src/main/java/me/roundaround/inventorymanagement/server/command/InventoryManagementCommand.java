@@ -0,0 +1,33 @@
+package me.roundaround.inventorymanagement.server.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import me.roundaround.inventorymanagement.InventoryManagementMod;
+import me.roundaround.inventorymanagement.network.OperationType;
+import me.roundaround.inventorymanagement.server.OperationScheduler;
+import me.roundaround.inventorymanagement.server.OperationStats;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+
+public final class InventoryManagementCommand {
+  // Clients without the mod's language file, including vanilla clients on a dedicated server, show this instead.
+  private static final String STATS_FALLBACK = "%s: %s accepted, %s coalesced, %s dropped";
+
+  private InventoryManagementCommand() {
+  }
+
+  public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+    dispatcher.register(CommandManager.literal(InventoryManagementMod.MOD_ID)
+        .requires((source) -> source.hasPermissionLevel(2))
+        .then(CommandManager.literal("stats").executes((context) -> {
+          ServerCommandSource source = context.getSource();
+          OperationStats stats = OperationScheduler.getInstance().getStats();
+          for (OperationType type : OperationType.values()) {
+            source.sendFeedback(() -> Text.translatableWithFallback("inventorymanagement.command.stats", STATS_FALLBACK,
+                type.getId(), stats.getAccepted(type), stats.getCoalesced(type), stats.getDropped(type)
+            ), false);
+          }
+          return OperationType.values().length;
+        })));
+  }
+}
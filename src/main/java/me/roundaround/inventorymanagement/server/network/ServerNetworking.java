@@ -1,28 +1,156 @@
 package me.roundaround.inventorymanagement.server.network;
 
+import me.roundaround.inventorymanagement.api.SortStrategyRegistry;
 import me.roundaround.inventorymanagement.inventory.InventoryHelper;
+import me.roundaround.inventorymanagement.inventory.SlotTopology;
+import me.roundaround.inventorymanagement.inventory.SyncScope;
+import me.roundaround.inventorymanagement.network.BatchOperation;
 import me.roundaround.inventorymanagement.network.Networking;
+import me.roundaround.inventorymanagement.network.OperationType;
+import me.roundaround.inventorymanagement.network.ServerCapabilities;
+import me.roundaround.inventorymanagement.server.OperationScheduler;
+import net.fabricmc.fabric.api.networking.v1.ServerConfigurationConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerConfigurationNetworking;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.List;
 
 public final class ServerNetworking {
+  private static final int TRANSFER_SLICE_SLOTS = 256;
+  private static final int BATCH_CURSOR_STRIDE = 1 << 24;
+
   private ServerNetworking() {
   }
 
   public static void registerReceivers() {
     ServerPlayNetworking.registerGlobalReceiver(Networking.StackC2S.ID, ServerNetworking::handleStack);
+    ServerPlayNetworking.registerGlobalReceiver(Networking.LegacySortC2S.ID, ServerNetworking::handleLegacySort);
     ServerPlayNetworking.registerGlobalReceiver(Networking.SortC2S.ID, ServerNetworking::handleSort);
     ServerPlayNetworking.registerGlobalReceiver(Networking.TransferC2S.ID, ServerNetworking::handleTransfer);
+    ServerPlayNetworking.registerGlobalReceiver(Networking.BatchC2S.ID, ServerNetworking::handleBatch);
+  }
+
+  /**
+   * Announces the server's {@link ServerCapabilities} to joining clients that have the mod.
+   */
+  public static void registerHandshake() {
+    ServerConfigurationConnectionEvents.CONFIGURE.register((handler, server) -> {
+      if (ServerConfigurationNetworking.canSend(handler, Networking.CapabilitiesS2C.ID)) {
+        ServerConfigurationNetworking.send(handler, new Networking.CapabilitiesS2C(ServerCapabilities.current()));
+      }
+    });
   }
 
   private static void handleStack(Networking.StackC2S payload, ServerPlayNetworking.Context context) {
-    context.player().server.execute(() -> InventoryHelper.autoStack(context.player(), payload.fromPlayerInventory()));
+    ServerPlayerEntity player = context.player();
+    ScreenHandler screenHandler = player.currentScreenHandler;
+    OperationScheduler.getInstance().submit(player, OperationType.STACK, new RequestKey(screenHandler, payload),
+        (cursor) -> InventoryHelper.autoStack(player, screenHandler, payload.fromPlayerInventory(), cursor,
+            TRANSFER_SLICE_SLOTS
+        )
+    );
+  }
+
+  private static void handleLegacySort(Networking.LegacySortC2S payload, ServerPlayNetworking.Context context) {
+    handleSort(
+        new Networking.SortC2S(payload.isPlayerInventory(), SortStrategyRegistry.getDefault().getId()), context);
   }
 
   private static void handleSort(Networking.SortC2S payload, ServerPlayNetworking.Context context) {
-    context.player().server.execute(() -> InventoryHelper.sortInventory(context.player(), payload.isPlayerInventory()));
+    ServerPlayerEntity player = context.player();
+    ScreenHandler screenHandler = player.currentScreenHandler;
+    OperationScheduler.getInstance().submit(player, OperationType.SORT, new RequestKey(screenHandler, payload),
+        (cursor) -> {
+          InventoryHelper.sortInventory(player, screenHandler, payload.isPlayerInventory(),
+              SortStrategyRegistry.get(payload.strategy())
+          );
+          return OperationScheduler.Operation.DONE;
+        }
+    );
   }
 
   private static void handleTransfer(Networking.TransferC2S payload, ServerPlayNetworking.Context context) {
-    context.player().server.execute(() -> InventoryHelper.transferAll(context.player(), payload.fromPlayerInventory()));
+    ServerPlayerEntity player = context.player();
+    ScreenHandler screenHandler = player.currentScreenHandler;
+    OperationScheduler.getInstance().submit(player, OperationType.TRANSFER, new RequestKey(screenHandler, payload),
+        (cursor) -> InventoryHelper.transferAll(player, screenHandler, payload.fromPlayerInventory(), cursor,
+            TRANSFER_SLICE_SLOTS
+        )
+    );
+  }
+
+  private static void handleBatch(Networking.BatchC2S payload, ServerPlayNetworking.Context context) {
+    if (payload.operations().isEmpty()) {
+      return;
+    }
+
+    ServerPlayerEntity player = context.player();
+    ScreenHandler screenHandler = player.currentScreenHandler;
+    List<OperationType> types = payload.operations().stream().map(BatchOperation::type).toList();
+    OperationScheduler.getInstance().submit(player, types, new RequestKey(screenHandler, payload),
+        (cursor) -> runBatch(player, screenHandler, payload.operations(), cursor)
+    );
+  }
+
+  /**
+   * Runs the batch's operations in order, from where the previous slice stopped, until {@link #TRANSFER_SLICE_SLOTS}
+   * slots have been handled, and returns where the next slice starts. The cursor holds the index of the current
+   * operation times {@link #BATCH_CURSOR_STRIDE} plus the offset into that operation's source range. Stacks and
+   * transfers are sliced like their single-operation payloads. Sorts run like single sort requests: ranges too large to
+   * sort on the server thread go to the background sorter, which re-plans if later operations in the batch change the
+   * range before it commits. Everything a slice does on this thread is synced once, in one {@link SyncScope}, so a
+   * batch that fits in one slice reaches viewers as a single sync. The rest of the batch is dropped if the player
+   * leaves the screen it was sent from.
+   */
+  private static int runBatch(
+      ServerPlayerEntity player, ScreenHandler screenHandler, List<BatchOperation> operations, int cursor
+  ) {
+    if (player.currentScreenHandler != screenHandler) {
+      return OperationScheduler.Operation.DONE;
+    }
+
+    Inventory containerInventory = SlotTopology.of(screenHandler).getContainerInventory();
+    Inventory[] inventories = containerInventory == null ?
+        new Inventory[]{player.getInventory()} :
+        new Inventory[]{player.getInventory(), containerInventory};
+
+    int index = cursor / BATCH_CURSOR_STRIDE;
+    int start = cursor % BATCH_CURSOR_STRIDE;
+    int budget = TRANSFER_SLICE_SLOTS;
+    try (SyncScope ignored = SyncScope.open(player.server, inventories)) {
+      while (index < operations.size() && budget > 0) {
+        BatchOperation operation = operations.get(index);
+        if (operation.type() == OperationType.SORT) {
+          budget -= InventoryHelper.sortInventory(player, screenHandler, operation.playerSide(),
+              SortStrategyRegistry.get(operation.strategy())
+          );
+        } else {
+          boolean transferAll = operation.type() == OperationType.TRANSFER;
+          int next = transferAll ?
+              InventoryHelper.transferAll(player, screenHandler, operation.playerSide(), start, budget) :
+              InventoryHelper.autoStack(player, screenHandler, operation.playerSide(), start, budget);
+          if (next != OperationScheduler.Operation.DONE) {
+            return index * BATCH_CURSOR_STRIDE + next;
+          }
+          budget -= InventoryHelper.getTransferSlotCount(player, screenHandler, operation.playerSide(), transferAll) -
+              start;
+        }
+        index++;
+        start = 0;
+      }
+    }
+
+    return index < operations.size() ? index * BATCH_CURSOR_STRIDE : OperationScheduler.Operation.DONE;
+  }
+
+  /**
+   * Identifies a request for coalescing. Screen handlers compare by identity, so requests made from a screen that was
+   * closed and reopened within the same tick are kept apart even though their payloads are equal.
+   */
+  private record RequestKey(ScreenHandler screenHandler, CustomPayload payload) {
   }
 }